@@ -0,0 +1,83 @@
+package org.jan.webapp.hms.benchmark;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.jan.webapp.hms.dao.impl.BaseDaoImpl;
+import org.jan.webapp.hms.exception.AppException;
+import org.jan.webapp.hms.monitor.QueryStatistics;
+import org.jan.webapp.hms.service.UserService;
+import org.jan.webapp.hms.service.impl.UserServiceImpl;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.hibernate4.HibernateTransactionManager;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBean;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import com.alibaba.druid.pool.DruidDataSource;
+
+/**
+ * The hms persistence layer on an in-memory H2 database, the schema created by
+ * Hibernate from the entities.
+ *
+ * @author Jan.Wang
+ *
+ */
+@Configuration
+@EnableTransactionManagement
+public class BenchmarkDaoConfig {
+
+    @Bean(initMethod="init", destroyMethod="close")
+    public DataSource dataSource(){
+        DruidDataSource dataSource = new DruidDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:hms;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setInitialSize(4);
+        dataSource.setMaxActive(16);
+        return dataSource;
+    }
+
+    @Bean
+    public SessionFactory sessionFactory(){
+        LocalSessionFactoryBean sf = new LocalSessionFactoryBean();
+        sf.setDataSource(dataSource());
+        sf.setPackagesToScan("org.jan.webapp.hms.model");
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        properties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        properties.setProperty("hibernate.default_batch_fetch_size", "16");
+        sf.setHibernateProperties(properties);
+        try {
+            sf.afterPropertiesSet();
+        } catch (IOException e) {
+            throw new AppException(e);
+        }
+        return sf.getObject();
+    }
+
+    @Bean
+    public HibernateTransactionManager transactionManager(){
+        return new HibernateTransactionManager(sessionFactory());
+    }
+
+    @Bean
+    public QueryStatistics queryStatistics(){
+        return new QueryStatistics(Long.MAX_VALUE / 1000);
+    }
+
+    @Bean
+    public BaseDaoImpl<Object> baseDao(){
+        return new BaseDaoImpl<Object>();
+    }
+
+    @Bean
+    public UserService userService(){
+        return new UserServiceImpl();
+    }
+
+}
@@ -0,0 +1,57 @@
+package org.jan.webapp.hms.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jan.webapp.hms.util.Encrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link Encrypt}, run on every login.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class EncryptBenchmark {
+
+    @Param({"8", "64"})
+    private int length;
+
+    private String plain;
+    private String encrypted;
+
+    @Setup
+    public void setUp(){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < length; i++)
+            sb.append((char) ('a' + i % 26));
+        plain = sb.toString();
+        encrypted = Encrypt.ep(plain);
+    }
+
+    @Benchmark
+    public String ep(){
+        return Encrypt.ep(plain);
+    }
+
+    @Benchmark
+    public String dp(){
+        return Encrypt.dp(encrypted);
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.jan.webapp.hms.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jan.webapp.hms.model.page.Menu;
+import org.jan.webapp.hms.model.page.Online;
+import org.jan.webapp.hms.model.page.User;
+
+/**
+ * Test data shared by the benchmarks.
+ *
+ * @author Jan.Wang
+ *
+ */
+final class Fixtures {
+
+    private Fixtures(){}
+
+    static User user(int i){
+        User user = new User();
+        user.setId(String.format("%036d", i));
+        user.setUserName("user" + i);
+        user.setPassword("password" + i);
+        user.setRealName("用户" + i);
+        user.setGender(0 == i % 2 ? "男" : "女");
+        user.setNote("note of user " + i);
+        user.setActive(1);
+        user.setRoleId("-1");
+        Date now = new Date();
+        user.setCreateDt(now);
+        user.setLastUpdateDt(now);
+        return user;
+    }
+
+    static List<User> users(int count){
+        List<User> users = new ArrayList<User>(count);
+        for(int i = 0; i < count; i++)
+            users.add(user(i));
+        return users;
+    }
+
+    static Online online(int i){
+        return new Online("user" + i, String.format("2012-12-%02d 10:%02d:%02d", i % 28 + 1, i % 60, i * 7 % 60),
+                String.format("10.0.%d.%d", i / 256 % 256, i % 256));
+    }
+
+    /**
+     * A menu tree of the specified depth, every menu having the specified number of children.
+     */
+    static List<Menu> menus(int depth, int children){
+        List<Menu> menus = new ArrayList<Menu>();
+        addMenus(menus, "-1", "m", depth, children);
+        return menus;
+    }
+
+    private static void addMenus(List<Menu> menus, String pid, String prefix, int depth, int children){
+        if(0 == depth)
+            return;
+        for(int i = 0; i < children; i++){
+            String id = prefix + i;
+            Menu menu = new Menu();
+            menu.setId(id);
+            menu.setPid(pid);
+            menu.setName("菜单 " + id);
+            menu.setText(menu.getName());
+            menu.setUrl("/navigate!" + id + ".action");
+            menu.setIconUrl("icon-" + id);
+            menu.setSeq(i);
+            menu.getAttributes().put("url", menu.getUrl());
+            menus.add(menu);
+            addMenus(menus, id, id + "_", depth - 1, children);
+        }
+    }
+
+}
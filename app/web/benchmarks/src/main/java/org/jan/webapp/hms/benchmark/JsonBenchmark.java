@@ -0,0 +1,61 @@
+package org.jan.webapp.hms.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jan.webapp.hms.action.BaseAction;
+import org.jan.webapp.hms.cache.MenuCache;
+import org.jan.webapp.hms.model.page.DataGrid;
+import org.jan.webapp.hms.model.page.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON rendering of the action responses, through {@link BaseAction#toJson(Object)}
+ * as {@link BaseAction#responseJson(Object)} does: a user grid page and the menu tree
+ * of <code>menuAction!showAllTreeNode</code>.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int rows;
+
+    private DataGrid<User> grid;
+
+    @Setup
+    public void setUp(){
+        List<User> users = Fixtures.users(rows);
+        grid = new DataGrid<User>(users, users.size());
+        if(MenuCache.getInstance().getMenuList().isEmpty())
+            MenuCache.getInstance().setMenuList(Fixtures.menus(3, 6));
+    }
+
+    @Benchmark
+    public String userGrid(){
+        return BaseAction.toJson(grid);
+    }
+
+    @Benchmark
+    public String menuTree(){
+        return BaseAction.toJson(MenuCache.getInstance().getMenuList());
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.jan.webapp.hms.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jan.webapp.hms.cache.OnlineCache;
+import org.jan.webapp.hms.model.page.Online;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link OnlineCache} with the specified number of online users: the sorted online
+ * list, and the activity update done on every request.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class OnlineCacheBenchmark {
+
+    @Param({"100", "10000"})
+    private int sessions;
+
+    @Param({"loginName", "loginTime"})
+    private String sort;
+
+    private Online query;
+
+    @Setup
+    public void setUp(){
+        OnlineCache cache = OnlineCache.getInstance();
+        cache.startExpiry(OnlineCache.DEFAULT_IDLE_TIMEOUT);
+        for(int i = 0; i < sessions; i++)
+            cache.addOnline(Fixtures.online(i));
+        query = new Online();
+        query.setSort(sort);
+    }
+
+    @TearDown
+    public void tearDown(){
+        OnlineCache cache = OnlineCache.getInstance();
+        for(int i = 0; i < sessions; i++)
+            cache.removeOnline(Fixtures.online(i).getLoginName());
+        cache.stopExpiry();
+    }
+
+    @Benchmark
+    public List<Online> getOnlines(){
+        return OnlineCache.getInstance().getOnlines(query);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean touch(){
+        return OnlineCache.getInstance().touch("user" + (Thread.currentThread().getId() % sessions));
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.jan.webapp.hms.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.jan.webapp.hms.converter.impl.UserConverter;
+import org.jan.webapp.hms.model.entity.UserEntity;
+import org.jan.webapp.hms.model.page.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link UserConverter} between the page model and the entity.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class UserConverterBenchmark {
+
+    private UserConverter converter;
+    private User user;
+    private UserEntity userEntity;
+
+    @Setup
+    public void setUp(){
+        converter = new UserConverter();
+        user = Fixtures.user(1);
+        user.setCreateDt(new Date());
+        userEntity = converter.convert(user);
+    }
+
+    @Benchmark
+    public UserEntity convert(){
+        return converter.convert(user);
+    }
+
+    @Benchmark
+    public User inverse(){
+        return converter.inverse(userEntity);
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.jan.webapp.hms.benchmark;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jan.webapp.hms.model.entity.RoleEntity;
+import org.jan.webapp.hms.model.page.User;
+import org.jan.webapp.hms.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+/**
+ * {@link UserService} down to the database, on the in-memory database of
+ * {@link BenchmarkDaoConfig} holding the specified number of users.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+
+    private static final String ROLE_ID = "-1";
+
+    @Param({"100", "1000"})
+    private int users;
+
+    private AnnotationConfigApplicationContext context;
+    private UserService userService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        context = new AnnotationConfigApplicationContext(BenchmarkDaoConfig.class);
+        userService = context.getBean(UserService.class);
+        Session session = context.getBean(SessionFactory.class).openSession();
+        try {
+            session.beginTransaction();
+            RoleEntity role = new RoleEntity();
+            role.setId(ROLE_ID);
+            role.setName("admin");
+            role.setActive(1);
+            role.setLastUpdateDt(new Date());
+            session.save(role);
+            session.getTransaction().commit();
+        } finally {
+            session.close();
+        }
+        for(int i = 0; i < users; i++){
+            User user = Fixtures.user(i);
+            userService.addUser(user);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        context.close();
+    }
+
+    @Benchmark
+    public User login(){
+        int i = next++ % users;
+        return userService.login("user" + i, "password" + i);
+    }
+
+    @Benchmark
+    public User getUserByUserName(){
+        return userService.getUserByUserName("user" + (next++ % users));
+    }
+
+    @Benchmark
+    public List<User> getUsersByRoleId(){
+        return userService.getUsersByRoleId(ROLE_ID);
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.jan.webapp.hms.loadtest;
+
+/**
+ * The steps a load test script is made of, each one request of the hms UI.
+ *
+ * @author Jan.Wang
+ *
+ */
+enum Flow {
+
+    /** Logs in again, on a new session. */
+    LOGIN("/userAction!login.action", true),
+    MENU("/menuAction!showAllTreeNode.action", false),
+    ONLINE("/onlineAction!viewOnlines.action?page=1&rows=10&sort=loginTime&order=desc", false),
+    USERS("/userAction!datagrid.action?page=1&rows=10", false);
+
+    private final String path;
+    private final boolean login;
+
+    private Flow(String path, boolean login){
+        this.path = path;
+        this.login = login;
+    }
+
+    String getPath(){
+        return path;
+    }
+
+    boolean isLogin(){
+        return login;
+    }
+
+    /**
+     * @param script comma separated flow names, e.g. <code>login,menu,online,users</code>
+     */
+    static Flow[] parse(String script){
+        String[] names = script.split(",");
+        Flow[] flows = new Flow[names.length];
+        for(int i = 0; i < names.length; i++)
+            flows[i] = valueOf(names[i].trim().toUpperCase());
+        return flows;
+    }
+
+}
@@ -0,0 +1,162 @@
+package org.jan.webapp.hms.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jan.webapp.hms.monitor.LatencyHistogram;
+
+/**
+ * Open-model load driver for hms, started with
+ * <code>mvn -Ploadtest jetty:run</code> in the hms module.
+ * <p>
+ * Virtual users share one schedule of <code>rate</code> requests per second, each
+ * taking the next slot, waiting for its time and running the next step of its
+ * script. Latency is measured from the scheduled time rather than from the
+ * send, so a slow server is charged for the requests it held up instead of
+ * silently lowering the rate. Requests of the warm-up are not recorded.
+ * <p>
+ * Usage: <code>java -cp target/benchmarks.jar org.jan.webapp.hms.loadtest.LoadDriver
+ * [-url http://localhost:8080] [-rate 100] [-users 32] [-warmup 30] [-duration 60]
+ * [-script login,menu,online,users] [-user system] [-password admin123]</code>
+ *
+ * @author Jan.Wang
+ *
+ */
+public final class LoadDriver {
+
+    private final String url;
+    private final double rate;
+    private final int users;
+    private final int warmupSeconds;
+    private final int durationSeconds;
+    private final Flow[] script;
+    private final String userName;
+    private final String password;
+
+    private final Map<Flow, LatencyHistogram> latencies = new EnumMap<Flow, LatencyHistogram>(Flow.class);
+    private final Map<Flow, AtomicLong> errors = new EnumMap<Flow, AtomicLong>(Flow.class);
+    private final AtomicLong slots = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    private LoadDriver(Map<String, String> options){
+        url = option(options, "url", "http://localhost:8080");
+        rate = Double.parseDouble(option(options, "rate", "100"));
+        users = Integer.parseInt(option(options, "users", "32"));
+        warmupSeconds = Integer.parseInt(option(options, "warmup", "30"));
+        durationSeconds = Integer.parseInt(option(options, "duration", "60"));
+        script = Flow.parse(option(options, "script", "login,menu,online,users"));
+        userName = option(options, "user", "system");
+        password = option(options, "password", "admin123");
+        for(Flow flow : Flow.values()){
+            latencies.put(flow, new LatencyHistogram());
+            errors.put(flow, new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+        for(int i = 0; i + 1 < args.length; i += 2){
+            if(!args[i].startsWith("-"))
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            options.put(args[i].substring(1), args[i + 1]);
+        }
+        LoadDriver driver = new LoadDriver(options);
+        // one kept-alive connection per virtual user
+        System.setProperty("http.maxConnections", String.valueOf(driver.users));
+        driver.run();
+        driver.report(System.out);
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue){
+        String value = options.get(name);
+        return null == value ? defaultValue : value;
+    }
+
+    private void run() throws IOException, InterruptedException {
+        final long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        final long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        final long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        final CountDownLatch done = new CountDownLatch(users);
+        System.out.println(String.format("Driving %s at %.1f req/s with %d virtual users: %ds warm-up, %ds measured, script %s",
+                url, rate, users, warmupSeconds, durationSeconds, Arrays.toString(script)));
+        for(int i = 0; i < users; i++){
+            final VirtualUser user = new VirtualUser(url, userName, password, script);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        drive(user, interval, start, measureFrom, end);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "virtual-user-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+    }
+
+    private void drive(VirtualUser user, long interval, long start, long measureFrom, long end){
+        while(true){
+            long scheduled = start + slots.getAndIncrement() * interval;
+            if(scheduled >= end)
+                return;
+            long now;
+            while((now = System.nanoTime()) < scheduled)
+                LockSupport.parkNanos(scheduled - now);
+            Flow flow = user.next();
+            boolean ok = user.run(flow);
+            if(scheduled < measureFrom)
+                continue;
+            long lag = now - scheduled;
+            long max;
+            while(lag > (max = maxLag.get()) && !maxLag.compareAndSet(max, lag));
+            if(ok)
+                latencies.get(flow).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled));
+            else
+                errors.get(flow).incrementAndGet();
+        }
+    }
+
+    private void report(PrintStream out){
+        Runtime runtime = Runtime.getRuntime();
+        out.println(String.format("%s %s, %d cpus, java %s", System.getProperty("os.name"), System.getProperty("os.arch"),
+                runtime.availableProcessors(), System.getProperty("java.version")));
+        out.println(String.format("%-8s %9s %7s %9s %9s %9s %9s %9s %9s", "flow", "req/s", "errors",
+                "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        long total = 0;
+        long totalErrors = 0;
+        for(Flow flow : Flow.values()){
+            LatencyHistogram histogram = latencies.get(flow);
+            long count = histogram.getCount();
+            long failed = errors.get(flow).get();
+            if(0 == count && 0 == failed)
+                continue;
+            total += count;
+            totalErrors += failed;
+            out.println(String.format("%-8s %9.1f %7d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f", flow.name().toLowerCase(),
+                    (double) count / durationSeconds, failed, histogram.getMean() / 1000d,
+                    millis(histogram, 50d), millis(histogram, 90d), millis(histogram, 99d), millis(histogram, 99.9d),
+                    histogram.getMax() / 1000d));
+        }
+        out.println(String.format("%-8s %9.1f %7d", "total", (double) total / durationSeconds, totalErrors));
+        if(maxLag.get() > TimeUnit.MILLISECONDS.toNanos(100))
+            out.println(String.format("Virtual users fell up to %d ms behind the schedule: the server did not keep up, "
+                    + "or more users are needed for this rate", TimeUnit.NANOSECONDS.toMillis(maxLag.get())));
+    }
+
+    private static double millis(LatencyHistogram histogram, double percentile){
+        return histogram.getValueAtPercentile(percentile) / 1000d;
+    }
+
+}
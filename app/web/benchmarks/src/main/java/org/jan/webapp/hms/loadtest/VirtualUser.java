@@ -0,0 +1,124 @@
+package org.jan.webapp.hms.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.List;
+
+/**
+ * One simulated browser: runs the steps of the script in turn, keeping its
+ * session cookie between them.
+ *
+ * @author Jan.Wang
+ *
+ */
+class VirtualUser {
+
+    private static final String SESSION_COOKIE = "JSESSIONID=";
+    /**
+     * Found in the main page a successful login forwards to (WEB-INF/views/main.jsp),
+     * not in the login page a failed one forwards to, which is also a 200 with a session.
+     */
+    private static final String LOGGED_IN_MARKER = "navigate!north.action";
+    private static final int TIMEOUT = 30000;
+
+    private final String baseUrl;
+    private final String credentials;
+    private final Flow[] script;
+    private final byte[] buffer = new byte[8192];
+    private String cookie;
+    private int step;
+
+    VirtualUser(String baseUrl, String userName, String password, Flow[] script) throws IOException {
+        this.baseUrl = baseUrl;
+        this.credentials = "userName=" + URLEncoder.encode(userName, "UTF-8") + "&password=" + URLEncoder.encode(password, "UTF-8");
+        this.script = script;
+    }
+
+    /**
+     * @return the flow the next call to {@link #run(Flow)} should be given
+     */
+    Flow next(){
+        return script[step++ % script.length];
+    }
+
+    /**
+     * @return true if the request succeeded
+     */
+    boolean run(Flow flow){
+        if(flow.isLogin())
+            cookie = null;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + flow.getPath()).openConnection();
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            connection.setInstanceFollowRedirects(false);
+            if(null != cookie)
+                connection.setRequestProperty("Cookie", cookie);
+            if(flow.isLogin()){
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                OutputStream out = connection.getOutputStream();
+                out.write(credentials.getBytes("UTF-8"));
+                out.close();
+            }
+            int status = connection.getResponseCode();
+            keepCookie(connection.getHeaderFields().get("Set-Cookie"));
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if(!flow.isLogin()){
+                drain(in);
+                return HttpURLConnection.HTTP_OK == status;
+            }
+            boolean loggedIn = read(in).contains(LOGGED_IN_MARKER);
+            return HttpURLConnection.HTTP_OK == status && null != cookie && loggedIn;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void keepCookie(List<String> headers){
+        if(null == headers)
+            return;
+        for(String header : headers){
+            if(header.startsWith(SESSION_COOKIE)){
+                int end = header.indexOf(';');
+                cookie = -1 == end ? header : header.substring(0, end);
+            }
+        }
+    }
+
+    /*
+     * Reads a response to the end, as UTF-8 text.
+     */
+    private String read(InputStream in) throws IOException {
+        if(null == in)
+            return "";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            int n;
+            while(-1 != (n = in.read(buffer)))
+                out.write(buffer, 0, n);
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+
+    /*
+     * Reads the response to the end, so the connection can be reused.
+     */
+    private void drain(InputStream in) throws IOException {
+        if(null == in)
+            return;
+        try {
+            while(-1 != in.read(buffer));
+        } finally {
+            in.close();
+        }
+    }
+
+}
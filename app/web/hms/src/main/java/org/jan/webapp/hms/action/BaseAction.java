@@ -10,12 +10,14 @@ import org.apache.log4j.Logger;
 import org.apache.struts2.ServletActionContext;
 import org.apache.struts2.convention.annotation.Namespace;
 import org.apache.struts2.convention.annotation.ParentPackage;
+import org.jan.webapp.hms.monitor.RequestTrace;
+import org.jan.webapp.hms.monitor.RequestTrace.Phase;
 import org.jan.webapp.hms.util.Constants;
 
 import com.alibaba.fastjson.JSON;
 import com.opensymphony.xwork2.ActionSupport;
 
-@ParentPackage("struts-default")
+@ParentPackage("hms-default")
 @Namespace("/")
 public abstract class BaseAction extends ActionSupport {
     private static final long serialVersionUID = 2527281313856828172L;
@@ -55,7 +57,9 @@ public abstract class BaseAction extends ActionSupport {
     }
 
     public void responseJson(Object obj) {
-        String json = JSON.toJSONStringWithDateFormat(obj, Constants.FORMAT_DATE_y_M_d_H_m_s);
+        long start = System.nanoTime();
+        String json = toJson(obj);
+        RequestTrace.record(Phase.JSON, System.nanoTime() - start);
         HttpServletResponse response = getHttpServletResponse();
         response.setContentType("text/html;charset=utf-8");
         try {
@@ -66,6 +70,13 @@ public abstract class BaseAction extends ActionSupport {
         }
     }
 
+    /**
+     * Serializes an object the way {@link #responseJson(Object)} sends it.
+     */
+    public static String toJson(Object obj) {
+        return JSON.toJSONStringWithDateFormat(obj, Constants.FORMAT_DATE_y_M_d_H_m_s);
+    }
+
     private Logger getCurrentLogger(){
         Logger l = getLogger();
         if(null != l)
@@ -0,0 +1,115 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.action;
+
+import java.io.IOException;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+import org.apache.struts2.convention.annotation.Action;
+import org.apache.struts2.convention.annotation.InterceptorRef;
+import org.apache.struts2.convention.annotation.InterceptorRefs;
+import org.jan.webapp.hms.monitor.PoolAdvisor;
+import org.jan.webapp.hms.monitor.QueryStatistics;
+import org.jan.webapp.hms.monitor.TraceBuffer;
+
+/**
+ * Administration views of the application metrics, for logged in sessions only.
+ * The resets must be posted.
+ *
+ * @author Jan.Wang
+ *
+ */
+@Action(value = "monitorAction")
+@InterceptorRefs(@InterceptorRef("authStack"))
+public class MonitorAction extends BaseAction {
+    private static final long serialVersionUID = -5173470532641963508L;
+
+    private static final Logger logger = Logger.getLogger(MonitorAction.class);
+
+    private static final int DEFAULT_TOP = 20;
+
+    @Inject
+    private QueryStatistics queryStatistics;
+    @Inject
+    private PoolAdvisor poolAdvisor;
+    private int top = DEFAULT_TOP;
+
+    /**
+     * @param top number of traces listed by {@link #traces()}
+     */
+    public void setTop(int top) {
+        this.top = top;
+    }
+
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.action.BaseAction#getLogger()
+     */
+    @Override
+    protected Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * HQL latency percentiles in microseconds, the highest p99 first.
+     */
+    public void queryStats(){
+        this.responseJson(queryStatistics.getStats());
+    }
+
+    public void resetQueryStats(){
+        if(!isPost())
+            return;
+        queryStatistics.reset();
+        this.responseJson(Boolean.TRUE);
+    }
+
+    /**
+     * The slowest of the recent request traces, with their phases in microseconds.
+     */
+    public void traces(){
+        this.responseJson(TraceBuffer.getInstance().getSlowest(top));
+    }
+
+    public void resetTraces(){
+        if(!isPost())
+            return;
+        TraceBuffer.getInstance().clear();
+        this.responseJson(Boolean.TRUE);
+    }
+
+    /**
+     * The sizing advice and usage of the connection pool.
+     */
+    public void poolAdvice(){
+        this.responseJson(poolAdvisor.getAdvice());
+    }
+
+    /*
+     * Answers 405 to the requests other than POST.
+     */
+    private boolean isPost(){
+        if("POST".equals(getHttpServletRequest().getMethod()))
+            return true;
+        HttpServletResponse response = getHttpServletResponse();
+        response.setHeader("Allow", "POST");
+        try {
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+        return false;
+    }
+
+}
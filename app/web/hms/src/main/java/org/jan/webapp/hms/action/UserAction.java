@@ -14,6 +14,7 @@ import org.jan.webapp.hms.model.page.Online;
 import org.jan.webapp.hms.model.page.SessionInfo;
 import org.jan.webapp.hms.model.page.User;
 import org.jan.webapp.hms.service.UserService;
+import org.jan.webapp.hms.session.SessionStore;
 import org.jan.webapp.hms.util.Constants;
 import org.jan.webapp.hms.util.IpUtil;
 
@@ -31,6 +32,8 @@ public class UserAction extends BaseAction implements ModelDriven<User> {
 
     @Inject
     private UserService userService;
+    @Inject
+    private SessionStore sessionStore;
     private User userModel = new User();
 
     /* (non-Javadoc)
@@ -83,16 +86,17 @@ public class UserAction extends BaseAction implements ModelDriven<User> {
     }
 
     public void datagrid(){
-        //TODO
+        this.responseJson(userService.getUsers(userModel));
     }
 
     private SessionInfo saveSessionInfo(User user){
         SessionInfo sessionInfo = new SessionInfo();
         sessionInfo.setUserId(user.getId());
         sessionInfo.setLoginName(user.getUserName());
-        sessionInfo.setLoginPassword(user.getPassword());
         sessionInfo.setIp(IpUtil.getIpAddr(getHttpServletRequest()));
-        putValueToSession(Constants.SESSION_NAME_SESSION, sessionInfo);
+        sessionStore.save(getHttpSession().getId(), sessionInfo);
+        putValueToSession(Constants.SESSION_NAME_LOGIN_NAME, sessionInfo.getLoginName());
+        putValueToRequest(Constants.REQUEST_NAME_SESSION_INFO, sessionInfo);
         return sessionInfo;
     }
 
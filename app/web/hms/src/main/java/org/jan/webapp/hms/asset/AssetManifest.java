@@ -0,0 +1,80 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.asset;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.jan.common.utils.io.IOUtils;
+import org.jan.webapp.hms.util.Constants;
+
+/**
+ * Maps logical asset paths to the fingerprinted names produced by {@link AssetPipeline}.
+ * Without a manifest, e.g. when running from the sources, paths are returned unchanged.
+ * <p>
+ * JSPs use it through the <code>asset:url</code> EL function.
+ *
+ * @author Jan.Wang
+ *
+ */
+public final class AssetManifest {
+
+    private static final Logger logger = Logger.getLogger(AssetManifest.class);
+
+    private static final Pattern FINGERPRINTED = Pattern.compile(".*\\.[0-9a-f]{8}\\.(js|css)(\\.gz)?$");
+
+    private static final Properties manifest = load();
+
+    private AssetManifest(){}
+
+    /**
+     * @param path logical path of the asset, relative to the context root
+     * @return the fingerprinted path, or the path itself if it has no fingerprinted version
+     */
+    public static String url(String path){
+        if(null == path)
+            return null;
+        boolean absolute = path.startsWith("/");
+        String hashed = manifest.getProperty(absolute ? path.substring(1) : path);
+        if(null == hashed)
+            return path;
+        return absolute ? "/" + hashed : hashed;
+    }
+
+    /**
+     * @return true if the path names a fingerprinted asset, whose content never changes
+     */
+    public static boolean isFingerprinted(String path){
+        return FINGERPRINTED.matcher(path).matches();
+    }
+
+    private static Properties load(){
+        Properties properties = new Properties();
+        InputStream is = AssetManifest.class.getClassLoader().getResourceAsStream(Constants.ASSET_MANIFEST_PATH);
+        if(null == is){
+            logger.info("No asset manifest found, serving assets under their logical names");
+            return properties;
+        }
+        try {
+            properties.load(is);
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return properties;
+    }
+
+}
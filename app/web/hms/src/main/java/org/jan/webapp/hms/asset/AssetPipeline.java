@@ -0,0 +1,131 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.asset;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import org.jan.common.utils.file.FileUtils;
+import org.jan.common.utils.io.IOUtils;
+import org.jan.common.utils.zip.ZipUtils;
+
+/**
+ * Build-time asset stage, run by the hms <code>pom.xml</code> in the
+ * <code>prepare-package</code> phase.
+ * <p>
+ * For every script and style sheet under <code>resources/</code> of the web
+ * application it writes a copy named after its content hash
+ * (<code>app.css</code> becomes <code>app.1a2b3c4d.css</code>) next to the original,
+ * so relative references inside style sheets keep working, plus a gzip version of
+ * both. The logical to hashed name mapping is written to the manifest read by
+ * {@link AssetManifest}.
+ * <p>
+ * Usage: <code>AssetPipeline &lt;webapp source dir&gt; &lt;webapp target dir&gt; &lt;manifest file&gt;</code>
+ *
+ * @author Jan.Wang
+ *
+ */
+public final class AssetPipeline {
+
+    static final String RESOURCES_DIR = "resources";
+
+    private static final String[] FINGERPRINTED = {".js", ".css"};
+    private static final String[] COMPRESSED = {".js", ".css", ".html", ".htm", ".txt", ".xml", ".svg"};
+    private static final int HASH_LENGTH = 8;
+
+    private final File sourceDir;
+    private final File targetDir;
+    private final Properties manifest = new Properties();
+
+    private AssetPipeline(File sourceDir, File targetDir){
+        this.sourceDir = sourceDir;
+        this.targetDir = targetDir;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 3)
+            throw new IllegalArgumentException("Usage: AssetPipeline <webapp source dir> <webapp target dir> <manifest file>");
+        AssetPipeline pipeline = new AssetPipeline(new File(args[0]), new File(args[1]));
+        pipeline.process(new File(pipeline.sourceDir, RESOURCES_DIR), RESOURCES_DIR);
+        File manifestFile = new File(args[2]);
+        FileUtils.forceMkdir(manifestFile.getParentFile());
+        OutputStream out = new FileOutputStream(manifestFile);
+        try {
+            pipeline.manifest.store(out, "logical asset path = fingerprinted asset path");
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        System.out.println(String.format("[AssetPipeline] %d assets fingerprinted into %s", pipeline.manifest.size(), args[1]));
+    }
+
+    private void process(File dir, String path) throws IOException {
+        File[] files = dir.listFiles();
+        if(null == files)
+            return;
+        for(File file : files){
+            String filePath = path + "/" + file.getName();
+            if(file.isDirectory()){
+                process(file, filePath);
+            }else if(endsWith(file.getName(), FINGERPRINTED)){
+                byte[] content = FileUtils.readFileToByteArray(file);
+                String hashedPath = fingerprint(filePath, content);
+                write(filePath, content);
+                write(hashedPath, content);
+                manifest.setProperty(filePath, hashedPath);
+            }else if(endsWith(file.getName(), COMPRESSED)){
+                write(filePath, FileUtils.readFileToByteArray(file));
+            }
+        }
+    }
+
+    /*
+     * Writes the gzip version of an asset, and the asset itself unless it is already
+     * in place in the target directory.
+     */
+    private void write(String path, byte[] content) throws IOException {
+        File file = new File(targetDir, path);
+        if(!file.exists())
+            FileUtils.writeByteArrayToFile(file, content);
+        byte[] gzip = ZipUtils.gzip(content);
+        if(null != gzip && gzip.length < content.length)
+            FileUtils.writeByteArrayToFile(new File(targetDir, path + ".gz"), gzip);
+    }
+
+    static String fingerprint(String path, byte[] content){
+        int dot = path.lastIndexOf('.');
+        return String.format("%s.%s%s", path.substring(0, dot), hash(content), path.substring(dot));
+    }
+
+    private static String hash(byte[] content){
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+            return String.format("%032x", new BigInteger(1, digest)).substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean endsWith(String name, String[] suffixes){
+        for(String suffix : suffixes){
+            if(name.endsWith(suffix))
+                return true;
+        }
+        return false;
+    }
+
+}
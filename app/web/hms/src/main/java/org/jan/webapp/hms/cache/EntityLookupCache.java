@@ -0,0 +1,150 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.cache;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Identity cache for entity lookups by id, scoped to one unit of work.
+ * <p>
+ * A scope is bound to the current thread by {@link #open()} and released by
+ * {@link #close()}. Web requests get one from
+ * {@link org.jan.webapp.hms.filter.EntityLookupCacheFilter}, background jobs
+ * open and close it themselves around their work. Scopes nest, only the
+ * outermost {@link #close()} drops the cached entities.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class EntityLookupCache {
+
+    private static final ThreadLocal<EntityLookupCache> current = new ThreadLocal<EntityLookupCache>();
+
+    private Map<Key, Object> entities = new HashMap<Key, Object>();
+    private int depth;
+    private int hits;
+    private int misses;
+
+    private EntityLookupCache(){}
+
+    /**
+     * Opens a scope on the current thread, joining the enclosing one if any.
+     *
+     * @return the cache of the current scope
+     */
+    public static EntityLookupCache open(){
+        EntityLookupCache cache = current.get();
+        if(null == cache){
+            cache = new EntityLookupCache();
+            current.set(cache);
+        }
+        cache.depth++;
+        return cache;
+    }
+
+    /**
+     * Closes the innermost scope on the current thread.
+     *
+     * @return the released cache when the outermost scope is closed, otherwise null
+     */
+    public static EntityLookupCache close(){
+        EntityLookupCache cache = current.get();
+        if(null == cache || --cache.depth > 0)
+            return null;
+        current.remove();
+        cache.entities.clear();
+        return cache;
+    }
+
+    /**
+     * @return the cache bound to the current thread, or null outside of a scope
+     */
+    public static EntityLookupCache current(){
+        return current.get();
+    }
+
+    public <T> T get(Class<T> clazz, Serializable id){
+        Object entity = entities.get(new Key(clazz, id));
+        if(null == entity){
+            misses++;
+            return null;
+        }
+        hits++;
+        return clazz.cast(entity);
+    }
+
+    public void put(Class<?> clazz, Serializable id, Object entity){
+        if(null != id && null != entity)
+            entities.put(new Key(clazz, id), entity);
+    }
+
+    public void evict(Class<?> clazz, Serializable id){
+        if(null != id)
+            entities.remove(new Key(clazz, id));
+    }
+
+    public int size(){
+        return entities.size();
+    }
+
+    /**
+     * @return the hits
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the misses
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("lookups=%d, hits=%d, misses=%d", hits + misses, hits, misses);
+    }
+
+    private static final class Key {
+
+        private final Class<?> clazz;
+        private final Serializable id;
+
+        Key(Class<?> clazz, Serializable id){
+            this.clazz = clazz;
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * clazz.hashCode() + id.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj)
+                return true;
+            if(!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return clazz == other.clazz && id.equals(other.id);
+        }
+
+    }
+
+}
@@ -0,0 +1,241 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Expires keys that have not been touched for a given number of seconds.
+ * <p>
+ * Keys are kept in a hierarchical timing wheel of three levels: 60 one-second slots,
+ * 60 one-minute slots and 24 one-hour slots, with an overflow list beyond a day. A
+ * single ticker thread advances the wheel every second, cascades the coarser slots
+ * down when their time comes and only looks at the keys of the current second, so
+ * each key costs O(1) amortized whatever the number of keys.
+ * <p>
+ * {@link #touch(String)} only writes the last activity second of the key, a volatile
+ * field of its own entry: request threads neither lock nor share a counter. The wheel
+ * is rescheduled lazily, a key whose slot comes up is moved to its new deadline if
+ * it was touched in the meantime, and expired otherwise.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class ExpiryWheel {
+
+    private static final Logger logger = Logger.getLogger(ExpiryWheel.class);
+
+    private static final int SECONDS = 60;
+    private static final int MINUTES = 60;
+    private static final int HOURS = 24;
+    private static final long MINUTE = 60L;
+    private static final long HOUR = 3600L;
+    private static final long DAY = 86400L;
+
+    /**
+     * Notified from the ticker thread when a key expires.
+     */
+    public interface ExpiryListener {
+        void expired(String key);
+    }
+
+    private final long timeout;
+    private final ExpiryListener listener;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final Queue<Entry> registrations = new ConcurrentLinkedQueue<Entry>();
+
+    // only accessed by the ticker
+    private final List<List<Entry>> seconds = slots(SECONDS);
+    private final List<List<Entry>> minutes = slots(MINUTES);
+    private final List<List<Entry>> hours = slots(HOURS);
+    private List<Entry> overflow = new ArrayList<Entry>();
+    private long current;
+
+    private ScheduledExecutorService ticker;
+
+    /**
+     * @param timeout idle seconds after which a key expires
+     * @param listener
+     */
+    public ExpiryWheel(long timeout, ExpiryListener listener){
+        if(timeout < 1)
+            throw new IllegalArgumentException("Timeout must be at least one second");
+        this.timeout = timeout;
+        this.listener = listener;
+        this.current = now();
+    }
+
+    /**
+     * Starts the ticker thread.
+     */
+    public synchronized void start(){
+        if(null != ticker)
+            return;
+        ticker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "hms-expiry-wheel");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        ticker.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    advance(now());
+                } catch (Throwable e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop(){
+        if(null != ticker){
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Starts tracking the key, replacing any previous tracking of it.
+     */
+    public void register(String key){
+        Entry entry = new Entry(key, now());
+        entries.put(key, entry);
+        registrations.add(entry);
+    }
+
+    /**
+     * Records activity of the key.
+     *
+     * @return false if the key is not tracked, e.g. because it expired
+     */
+    public boolean touch(String key){
+        Entry entry = entries.get(key);
+        if(null == entry)
+            return false;
+        long now = now();
+        if(entry.lastAccess != now)
+            entry.lastAccess = now;
+        return true;
+    }
+
+    /**
+     * Stops tracking the key without notifying the listener.
+     */
+    public void cancel(String key){
+        entries.remove(key);
+    }
+
+    public int size(){
+        return entries.size();
+    }
+
+    /**
+     * Advances the wheel second by second up to the specified time, expiring the keys
+     * on the way. Called by the ticker; the wheel is not thread-safe for concurrent
+     * calls of this method.
+     *
+     * @param now epoch second
+     */
+    void advance(long now){
+        while(current < now){
+            current++;
+            if(0 == current % HOUR){
+                List<Entry> later = overflow;
+                overflow = new ArrayList<Entry>();
+                reschedule(later);
+                reschedule(take(hours, (int) (current / HOUR % HOURS)));
+            }
+            if(0 == current % MINUTE)
+                reschedule(take(minutes, (int) (current / MINUTE % MINUTES)));
+            for(Entry entry = registrations.poll(); null != entry; entry = registrations.poll())
+                place(entry, entry.lastAccess + timeout);
+            for(Entry entry : take(seconds, (int) (current % SECONDS))){
+                if(entries.get(entry.key) != entry)
+                    continue;
+                long deadline = entry.lastAccess + timeout;
+                if(deadline > current){
+                    place(entry, deadline);
+                }else if(entries.remove(entry.key, entry)){
+                    listener.expired(entry.key);
+                }
+            }
+        }
+    }
+
+    private void reschedule(List<Entry> list){
+        for(Entry entry : list){
+            if(entries.get(entry.key) == entry)
+                place(entry, Math.max(entry.deadline, entry.lastAccess + timeout));
+        }
+    }
+
+    private void place(Entry entry, long deadline){
+        if(deadline <= current)
+            deadline = current + 1;
+        entry.deadline = deadline;
+        long delta = deadline - current;
+        if(delta < SECONDS)
+            seconds.get((int) (deadline % SECONDS)).add(entry);
+        else if(delta < HOUR)
+            minutes.get((int) (deadline / MINUTE % MINUTES)).add(entry);
+        else if(delta < DAY)
+            hours.get((int) (deadline / HOUR % HOURS)).add(entry);
+        else
+            overflow.add(entry);
+    }
+
+    private static List<Entry> take(List<List<Entry>> wheel, int index){
+        List<Entry> slot = wheel.get(index);
+        wheel.set(index, new ArrayList<Entry>());
+        return slot;
+    }
+
+    private static List<List<Entry>> slots(int count){
+        List<List<Entry>> wheel = new ArrayList<List<Entry>>(count);
+        for(int i = 0; i < count; i++)
+            wheel.add(new ArrayList<Entry>());
+        return wheel;
+    }
+
+    private static long now(){
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static class Entry {
+
+        final String key;
+        volatile long lastAccess;
+        long deadline;
+
+        Entry(String key, long lastAccess){
+            this.key = key;
+            this.lastAccess = lastAccess;
+        }
+
+    }
+
+}
@@ -12,17 +12,21 @@
 package org.jan.webapp.hms.cache;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.jan.webapp.hms.model.page.Menu;
 
 /**
+ * The menus, built off to the side by the startup stage and published whole,
+ * so requests served while the application starts see no menu or all of them.
+ *
  * @author Jan.Wang
  *
  */
 public class MenuCache {
 
-    private List<Menu> menus = new ArrayList<Menu>();
+    private volatile List<Menu> menus = Collections.emptyList();
 
     private static MenuCache cache = new MenuCache();
 
@@ -36,8 +40,11 @@ public class MenuCache {
         return menus;
     }
 
-    public void addMenu(Menu menu){
-        menus.add(menu);
+    /**
+     * Replaces the menus.
+     */
+    public void setMenuList(List<Menu> menus){
+        this.menus = Collections.unmodifiableList(new ArrayList<Menu>(menus));
     }
 
 }
@@ -0,0 +1,331 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory closure of the module tree: for every module the set of its ancestors
+ * and descendants (both including the module itself), its own behaviors and the
+ * behaviors available anywhere in its subtree.
+ * <p>
+ * Subtree and permission-inheritance questions are answered by set lookups without
+ * touching the lazy <code>parent</code>/<code>children</code> associations. The
+ * closure is loaded once by {@link #rebuild(List)} and kept up to date by the
+ * incremental <code>module*</code>/<code>behavior*</code> methods.
+ * Modules and behaviors are identified by their numbers.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class ModuleClosureCache {
+
+    private Map<String, String> parents = new HashMap<String, String>();
+    private Map<String, Set<String>> ancestors = new HashMap<String, Set<String>>();
+    private Map<String, Set<String>> descendants = new HashMap<String, Set<String>>();
+    private Map<String, Set<String>> behaviors = new HashMap<String, Set<String>>();
+    private Map<String, Set<String>> subtreeBehaviors = new HashMap<String, Set<String>>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private static ModuleClosureCache cache = new ModuleClosureCache();
+
+    private ModuleClosureCache(){}
+
+    public static ModuleClosureCache getInstance(){
+        return cache;
+    }
+
+    /**
+     * Rebuilds the whole closure.
+     *
+     * @param rows <code>{moduleNo, parentModuleNo, behaviorNo}</code>, one per module
+     * behavior, the parent and behavior may be null
+     */
+    public void rebuild(List<Object[]> rows){
+        Map<String, String> parents = new HashMap<String, String>();
+        Map<String, Set<String>> behaviors = new HashMap<String, Set<String>>();
+        for(Object[] row : rows){
+            String moduleNo = (String) row[0];
+            parents.put(moduleNo, (String) row[1]);
+            if(null != row[2])
+                set(behaviors, moduleNo).add((String) row[2]);
+        }
+        lock.writeLock().lock();
+        try {
+            this.parents = parents;
+            this.behaviors = behaviors;
+            this.ancestors = new HashMap<String, Set<String>>();
+            this.descendants = new HashMap<String, Set<String>>();
+            this.subtreeBehaviors = new HashMap<String, Set<String>>();
+            for(String moduleNo : parents.keySet())
+                linkAncestors(moduleNo);
+            for(String moduleNo : parents.keySet())
+                refreshSubtreeBehaviors(moduleNo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if the module is the ancestor itself or lies in its subtree
+     */
+    public boolean isDescendant(String ancestorNo, String moduleNo){
+        lock.readLock().lock();
+        try {
+            Set<String> s = ancestors.get(moduleNo);
+            return null != s && s.contains(ancestorNo);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the numbers of the module and all its descendants
+     */
+    public Set<String> getSubtree(String moduleNo){
+        return copy(descendants, moduleNo);
+    }
+
+    /**
+     * @return the numbers of the module and all its ancestors
+     */
+    public Set<String> getAncestors(String moduleNo){
+        return copy(ancestors, moduleNo);
+    }
+
+    public boolean hasBehavior(String moduleNo, String behaviorNo){
+        return contains(behaviors, moduleNo, behaviorNo);
+    }
+
+    /**
+     * @return true if the behavior is available on the module or anywhere under it
+     */
+    public boolean hasBehaviorInSubtree(String moduleNo, String behaviorNo){
+        return contains(subtreeBehaviors, moduleNo, behaviorNo);
+    }
+
+    /**
+     * Checks a permission with inheritance: a grant on a module covers its whole subtree.
+     *
+     * @param grantedModuleNos the modules granted to a role
+     * @param moduleNo
+     * @param behaviorNo
+     * @return true if the module offers the behavior and the module or one of its
+     * ancestors is granted
+     */
+    public boolean isGranted(Collection<String> grantedModuleNos, String moduleNo, String behaviorNo){
+        lock.readLock().lock();
+        try {
+            Set<String> own = behaviors.get(moduleNo);
+            Set<String> path = ancestors.get(moduleNo);
+            if(null == own || null == path || !own.contains(behaviorNo))
+                return false;
+            if(grantedModuleNos.size() < path.size()){
+                for(String granted : grantedModuleNos){
+                    if(path.contains(granted))
+                        return true;
+                }
+            }else{
+                for(String ancestorNo : path){
+                    if(grantedModuleNos.contains(ancestorNo))
+                        return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a leaf module under the specified parent (null for a root).
+     */
+    public void moduleAdded(String moduleNo, String parentNo){
+        lock.writeLock().lock();
+        try {
+            parents.put(moduleNo, parentNo);
+            linkAncestors(moduleNo);
+            refreshSubtreeBehaviors(moduleNo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a module with its subtree under another parent (null for a root).
+     *
+     * @throws IllegalArgumentException if the parent lies in the subtree of the module
+     */
+    public void moduleMoved(String moduleNo, String parentNo){
+        lock.writeLock().lock();
+        try {
+            Set<String> subtree = descendants.get(moduleNo);
+            if(null == subtree)
+                return;
+            if(null != parentNo && subtree.contains(parentNo))
+                throw new IllegalArgumentException("Cannot move module " + moduleNo + " under its descendant " + parentNo);
+            Set<String> oldPath = new HashSet<String>(ancestors.get(moduleNo));
+            oldPath.remove(moduleNo);
+            for(String ancestorNo : oldPath)
+                descendants.get(ancestorNo).removeAll(subtree);
+            for(String d : subtree)
+                ancestors.get(d).removeAll(oldPath);
+            parents.put(moduleNo, parentNo);
+            Set<String> newPath = null == parentNo ? Collections.<String>emptySet() : ancestors.get(parentNo);
+            if(null != newPath){
+                for(String ancestorNo : newPath)
+                    descendants.get(ancestorNo).addAll(subtree);
+                for(String d : subtree)
+                    ancestors.get(d).addAll(newPath);
+            }
+            refreshPath(oldPath);
+            if(null != newPath)
+                refreshPath(new HashSet<String>(newPath));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a module with its subtree.
+     */
+    public void moduleRemoved(String moduleNo){
+        lock.writeLock().lock();
+        try {
+            Set<String> subtree = descendants.get(moduleNo);
+            if(null == subtree)
+                return;
+            Set<String> path = new HashSet<String>(ancestors.get(moduleNo));
+            path.removeAll(subtree);
+            for(String ancestorNo : path)
+                descendants.get(ancestorNo).removeAll(subtree);
+            for(String d : new HashSet<String>(subtree)){
+                parents.remove(d);
+                ancestors.remove(d);
+                descendants.remove(d);
+                behaviors.remove(d);
+                subtreeBehaviors.remove(d);
+            }
+            refreshPath(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void behaviorAdded(String moduleNo, String behaviorNo){
+        lock.writeLock().lock();
+        try {
+            if(!parents.containsKey(moduleNo))
+                return;
+            set(behaviors, moduleNo).add(behaviorNo);
+            for(String ancestorNo : ancestors.get(moduleNo))
+                set(subtreeBehaviors, ancestorNo).add(behaviorNo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void behaviorRemoved(String moduleNo, String behaviorNo){
+        lock.writeLock().lock();
+        try {
+            Set<String> own = behaviors.get(moduleNo);
+            if(null == own || !own.remove(behaviorNo))
+                return;
+            refreshPath(ancestors.get(moduleNo));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size(){
+        lock.readLock().lock();
+        try {
+            return parents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Computes the ancestors of the module, walking up until an already linked
+     * ancestor, and registers the module as their descendant.
+     */
+    private Set<String> linkAncestors(String moduleNo){
+        Set<String> path = ancestors.get(moduleNo);
+        if(null != path)
+            return path;
+        path = new HashSet<String>();
+        // guard against cycles in corrupted data
+        ancestors.put(moduleNo, path);
+        String parentNo = parents.get(moduleNo);
+        if(null != parentNo && parents.containsKey(parentNo))
+            path.addAll(linkAncestors(parentNo));
+        path.add(moduleNo);
+        for(String ancestorNo : path)
+            set(descendants, ancestorNo).add(moduleNo);
+        return path;
+    }
+
+    private void refreshPath(Set<String> moduleNos){
+        for(String moduleNo : moduleNos)
+            refreshSubtreeBehaviors(moduleNo);
+    }
+
+    private void refreshSubtreeBehaviors(String moduleNo){
+        Set<String> s = new HashSet<String>();
+        for(String d : descendants.get(moduleNo)){
+            Set<String> own = behaviors.get(d);
+            if(null != own)
+                s.addAll(own);
+        }
+        subtreeBehaviors.put(moduleNo, s);
+    }
+
+    private boolean contains(Map<String, Set<String>> map, String key, String value){
+        lock.readLock().lock();
+        try {
+            Set<String> s = map.get(key);
+            return null != s && s.contains(value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Set<String> copy(Map<String, Set<String>> map, String key){
+        lock.readLock().lock();
+        try {
+            Set<String> s = map.get(key);
+            return null == s ? Collections.<String>emptySet() : Collections.unmodifiableSet(new HashSet<String>(s));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<String> set(Map<String, Set<String>> map, String key){
+        Set<String> s = map.get(key);
+        if(null == s){
+            s = new HashSet<String>();
+            map.put(key, s);
+        }
+        return s;
+    }
+
+}
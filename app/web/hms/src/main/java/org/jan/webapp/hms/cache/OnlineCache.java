@@ -5,20 +5,28 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.jan.webapp.hms.cache.ExpiryWheel.ExpiryListener;
 import org.jan.webapp.hms.model.page.Online;
 
 
 /**
+ * Users currently online. Besides the explicit removal when a session is destroyed,
+ * users idle for longer than the idle timeout are removed by an {@link ExpiryWheel}
+ * within a second, without waiting for the session sweeper of the container.
+ *
  * @author Jan.Wang
  *
  */
-public class OnlineCache {
+public class OnlineCache implements ExpiryListener {
+
+    public static final int DEFAULT_IDLE_TIMEOUT = 1800;
 
-    private Map<String, Online> onlines = new HashMap<String, Online>();
+    private ConcurrentMap<String, Online> onlines = new ConcurrentHashMap<String, Online>();
+    private volatile ExpiryWheel wheel;
 
     private static OnlineCache cache = new OnlineCache();
 
@@ -28,14 +36,63 @@ public class OnlineCache {
         return cache;
     }
 
+    /**
+     * Starts expiring idle users.
+     *
+     * @param idleTimeout seconds without activity after which a user is removed
+     */
+    public synchronized void startExpiry(int idleTimeout){
+        stopExpiry();
+        ExpiryWheel w = new ExpiryWheel(idleTimeout, this);
+        for(String loginName : onlines.keySet())
+            w.register(loginName);
+        w.start();
+        wheel = w;
+    }
+
+    public synchronized void stopExpiry(){
+        if(null != wheel){
+            wheel.stop();
+            wheel = null;
+        }
+    }
+
     public void addOnline(Online online){
-        if(null != online)
+        if(null != online){
             onlines.put(online.getLoginName(), online);
+            ExpiryWheel w = wheel;
+            if(null != w)
+                w.register(online.getLoginName());
+        }
     }
 
     public void removeOnline(String loginName){
-        if(null != loginName)
+        if(null != loginName){
             onlines.remove(loginName);
+            ExpiryWheel w = wheel;
+            if(null != w)
+                w.cancel(loginName);
+        }
+    }
+
+    /**
+     * Records activity of an online user.
+     *
+     * @return false if the user is not online, e.g. because it was idle for too long
+     */
+    public boolean touch(String loginName){
+        ExpiryWheel w = wheel;
+        if(null == w)
+            return onlines.containsKey(loginName);
+        return w.touch(loginName);
+    }
+
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.cache.ExpiryWheel.ExpiryListener#expired(java.lang.String)
+     */
+    @Override
+    public void expired(String key) {
+        onlines.remove(key);
     }
 
     public List<Online> getOnlines(Online online){
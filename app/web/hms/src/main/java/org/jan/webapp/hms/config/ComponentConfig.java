@@ -1,16 +1,19 @@
 package org.jan.webapp.hms.config;
 
-import org.springframework.context.annotation.ComponentScan;
+import org.jan.webapp.hms.index.IndexedComponentRegistrar;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.PropertySource;
 
 /**
  * Configuration for application @Components such as @Services, @Repositories, and @Controllers.
+ * They are registered from the build-time component index, see {@link IndexedComponentRegistrar};
+ * the other configuration classes are imported here.
  *
  * @author Jan.Wang
  */
 @Configuration
-@ComponentScan(basePackages="org.jan.webapp.hms")
+@Import({DruidConfig.class, HibernateConfig.class, SessionConfig.class, IndexedComponentRegistrar.class})
 @PropertySource("classpath:default.properties")
 public class ComponentConfig {
 
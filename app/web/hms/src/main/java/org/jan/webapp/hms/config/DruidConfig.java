@@ -1,11 +1,21 @@
 package org.jan.webapp.hms.config;
 
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
 import org.aspectj.lang.annotation.Aspect;
+import org.jan.webapp.hms.interceptor.ServiceTraceInterceptor;
+import org.jan.webapp.hms.monitor.PoolAdvisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
 import org.springframework.aop.support.JdkRegexpMethodPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.env.StandardEnvironment;
 
+import com.alibaba.druid.pool.DruidDataSource;
 import com.alibaba.druid.support.spring.stat.DruidStatInterceptor;
 
 /**
@@ -16,6 +26,12 @@ import com.alibaba.druid.support.spring.stat.DruidStatInterceptor;
 @Aspect
 public class DruidConfig {
 
+    @Inject
+    private StandardEnvironment environment;
+
+    @Inject
+    private DataSource dataSource;
+
     @Bean
     public DruidStatInterceptor druidStatInterceptor(){
         return new DruidStatInterceptor();
@@ -29,4 +45,27 @@ public class DruidConfig {
         return pointcut;
     }
 
+    /**
+     * Service calls of the request traces. Infrastructure role, so that the auto proxy
+     * creator of the transaction management applies it along with the transactions.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public DefaultPointcutAdvisor serviceTraceAdvisor(){
+        return new DefaultPointcutAdvisor(jdkRegexpMethodPointcut(), new ServiceTraceInterceptor());
+    }
+
+    /**
+     * Pool sizing advice, see the <code>pool_*</code> properties.
+     */
+    @Bean(initMethod="start", destroyMethod="stop")
+    public PoolAdvisor poolAdvisor(){
+        return new PoolAdvisor((DruidDataSource) dataSource,
+                environment.getProperty("pool_autoSize", Boolean.class, Boolean.FALSE),
+                environment.getProperty("pool_lowerBound", Integer.class, 5),
+                environment.getProperty("pool_upperBound", Integer.class, 20),
+                environment.getProperty("pool_windowSeconds", Integer.class, 60),
+                environment.getProperty("pool_headroom", Double.class, 1.2d));
+    }
+
 }
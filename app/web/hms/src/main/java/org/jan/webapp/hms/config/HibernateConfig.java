@@ -1,6 +1,7 @@
 package org.jan.webapp.hms.config;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Properties;
 import java.util.Map.Entry;
 
@@ -9,13 +10,18 @@ import javax.sql.DataSource;
 
 import org.hibernate.SessionFactory;
 import org.jan.webapp.hms.exception.AppException;
+import org.jan.webapp.hms.index.ComponentIndex;
+import org.jan.webapp.hms.monitor.QueryStatistics;
+import org.jan.webapp.hms.interceptor.StatementCountInterceptor;
 import org.jan.webapp.hms.util.Constants;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.PropertySource;
 import org.springframework.core.env.StandardEnvironment;
 import org.springframework.orm.hibernate4.HibernateTransactionManager;
 import org.springframework.orm.hibernate4.LocalSessionFactoryBean;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.util.ClassUtils;
 
 import com.alibaba.druid.pool.DruidDataSourceFactory;
 /**
@@ -42,8 +48,13 @@ public class HibernateConfig {
     public SessionFactory sessionFactory(){
         LocalSessionFactoryBean sf = new LocalSessionFactoryBean();
         sf.setDataSource(dataSource());
-        sf.setPackagesToScan("org.jan.webapp.hms.model");
+        Class<?>[] entities = indexedEntities();
+        if(null == entities)
+            sf.setPackagesToScan("org.jan.webapp.hms.model");
+        else
+            sf.setAnnotatedClasses(entities);
         sf.setHibernateProperties(loadPrefixProperties(Constants.HIBERNATE_PROPS_KEY_PREFIX));
+        sf.setEntityInterceptor(new StatementCountInterceptor());
         try {
 			sf.afterPropertiesSet();
 		} catch (IOException e) {
@@ -52,21 +63,55 @@ public class HibernateConfig {
         return sf.getObject();
     }
 
+    /**
+     * HQL latency histograms, executions over <code>query_slowMillis</code> are sampled.
+     */
+    @Bean
+    public QueryStatistics queryStatistics(){
+        return new QueryStatistics(environment.getProperty("query_slowMillis", Long.class, 500L));
+    }
+
     @Bean
     public HibernateTransactionManager transactionManager(){
     	return new HibernateTransactionManager(sessionFactory());
     }
 
+    private Class<?>[] indexedEntities(){
+        List<String> names = ComponentIndex.entities();
+        if(null == names)
+            return null;
+        Class<?>[] classes = new Class<?>[names.size()];
+        try {
+            for(int i = 0; i < classes.length; i++)
+                classes[i] = ClassUtils.forName(names.get(i), ClassUtils.getDefaultClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new AppException("Indexed entity not found, rebuild the component index!", e);
+        }
+        return classes;
+    }
+
+    /*
+     * Collects the properties of the prefix from default.properties, overridden
+     * by the active profile, see ProfileInitializer.
+     */
     private Properties loadPrefixProperties(String prefix){
         Properties properties = new Properties();
-        Properties props = (Properties) environment.getPropertySources().get(Constants.DEFAULT_PROPS_NAME).getSource();
+        putPrefixProperties(properties, Constants.DEFAULT_PROPS_NAME, prefix);
+        putPrefixProperties(properties, Constants.PROFILE_PROPS_NAME, prefix);
+        return properties;
+    }
+
+    private void putPrefixProperties(Properties properties, String sourceName, String prefix){
+        PropertySource<?> source = environment.getPropertySources().get(sourceName);
+        if(null == source)
+            return;
+        Properties props = (Properties) source.getSource();
         String key = null;
         for (Entry<Object, Object> entry : props.entrySet()) {
         	key = (String) entry.getKey();
         	if(key.startsWith(prefix))
         		properties.put(key.replace(prefix, ""), entry.getValue());
         }
-        return properties;
     }
 
 }
@@ -0,0 +1,63 @@
+package org.jan.webapp.hms.config;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+import org.jan.webapp.hms.exception.AppException;
+import org.jan.webapp.hms.util.Constants;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Applies the property profile named by the <code>profile</code> property, taken
+ * from the system properties (<code>-Dprofile=loadtest</code>) or else from
+ * <code>default.properties</code>. The keys of <code>profile-&lt;name&gt;.properties</code>
+ * override the default ones, and the profile is made the active Spring profile.
+ * <p>
+ * Registered in <code>web.xml</code> as a <code>contextInitializerClasses</code> parameter.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class ProfileInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    private static final Logger logger = Logger.getLogger(ProfileInitializer.class);
+
+    private static final String PROFILE_KEY = "profile";
+
+    /* (non-Javadoc)
+     * @see org.springframework.context.ApplicationContextInitializer#initialize(org.springframework.context.ConfigurableApplicationContext)
+     */
+    @Override
+    public void initialize(ConfigurableApplicationContext applicationContext) {
+        ConfigurableEnvironment environment = applicationContext.getEnvironment();
+        String profile = environment.getProperty(PROFILE_KEY);
+        if(!StringUtils.hasText(profile))
+            profile = load(new ClassPathResource("default.properties")).getProperty(PROFILE_KEY);
+        if(!StringUtils.hasText(profile))
+            return;
+        profile = profile.trim();
+        Resource resource = new ClassPathResource(String.format(Constants.PROFILE_PROPS_PATH, profile));
+        if(!resource.exists())
+            throw new AppException(String.format("Profile %s has no %s!", profile, resource.getFilename()));
+        environment.getPropertySources().addFirst(new PropertiesPropertySource(Constants.PROFILE_PROPS_NAME, load(resource)));
+        environment.addActiveProfile(profile);
+        logger.info(String.format("Profile %s active, overriding default.properties with %s", profile, resource.getFilename()));
+    }
+
+    private static Properties load(Resource resource){
+        try {
+            return PropertiesLoaderUtils.loadProperties(resource);
+        } catch (IOException e) {
+            throw new AppException(e);
+        }
+    }
+
+}
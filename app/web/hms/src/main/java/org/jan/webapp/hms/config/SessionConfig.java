@@ -0,0 +1,38 @@
+package org.jan.webapp.hms.config;
+
+import java.io.File;
+
+import javax.inject.Inject;
+
+import org.jan.webapp.hms.session.HeapSessionStore;
+import org.jan.webapp.hms.session.MappedSessionStore;
+import org.jan.webapp.hms.session.SessionStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.util.StringUtils;
+
+/**
+ * Chooses the {@link SessionStore} from the <code>session_*</code> properties:
+ * <code>session_store</code> is <code>mapped</code> (default) or <code>heap</code>,
+ * <code>session_capacity</code> and <code>session_file</code> configure the mapped store.
+ *
+ * @author Jan.Wang
+ *
+ */
+@Configuration
+public class SessionConfig {
+
+    @Inject
+    private StandardEnvironment environment;
+
+    @Bean(destroyMethod="close")
+    public SessionStore sessionStore(){
+        if("heap".equals(environment.getProperty("session_store")))
+            return new HeapSessionStore();
+        String file = environment.getProperty("session_file");
+        return new MappedSessionStore(StringUtils.hasText(file) ? new File(file) : null,
+                environment.getProperty("session_capacity", Integer.class, 262144));
+    }
+
+}
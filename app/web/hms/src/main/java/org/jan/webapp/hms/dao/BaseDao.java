@@ -43,7 +43,9 @@ public interface BaseDao<T> {
     public void saveOrUpdate(T t);
 
     /**
-     * Gets the object by the specified id.
+     * Gets the object by the specified id. Inside an
+     * {@link org.jan.webapp.hms.cache.EntityLookupCache} scope repeated lookups
+     * of the same id are served from the cache.
      *
      * @param clazz
      * @param id
@@ -51,6 +53,16 @@ public interface BaseDao<T> {
      */
     public T get(Class<T> clazz, Serializable id);
 
+    /**
+     * Gets the object by the specified id with the associations of the fetch plan loaded.
+     *
+     * @param clazz
+     * @param id
+     * @param plan
+     * @return a instance of the specified clazz.
+     */
+    public T get(Class<T> clazz, Serializable id, FetchPlan plan);
+
     /**
      * Gets the object by hql.
      *
@@ -93,6 +105,17 @@ public interface BaseDao<T> {
      */
     public List<T> find(String hql, Map<String, Object> params);
 
+    /**
+     * Gets the list of objects by hql with parameters and the associations of the
+     * fetch plan loaded in batches.
+     *
+     * @param hql
+     * @param params
+     * @param plan
+     * @return a list of objects
+     */
+    public List<T> find(String hql, Map<String, Object> params, FetchPlan plan);
+
     /**
      * Gets the list of objects by hql in the page.
      *
@@ -114,6 +137,19 @@ public interface BaseDao<T> {
      */
     public List<T> find(String hql, Map<String, Object> params, int page, int rows);
 
+    /**
+     * Gets the list of objects by hql in the page with parameters and the associations
+     * of the fetch plan loaded in batches.
+     *
+     * @param hql
+     * @param params
+     * @param page
+     * @param rows
+     * @param plan
+     * @return a list of objects
+     */
+    public List<T> find(String hql, Map<String, Object> params, int page, int rows, FetchPlan plan);
+
     /**
      * Counts number.
      *
@@ -0,0 +1,58 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.dao;
+
+/**
+ * Named fetch plans a service passes to {@link BaseDao} to load associations up front
+ * instead of relying on lazy loading in the view.
+ * <p>
+ * Lookups by id enable the Hibernate fetch profile of the same name, declared on the
+ * entity, so the associations come back in the same join. Queries initialize the
+ * associations after the list is loaded, which is batched by
+ * <code>hibernate.default_batch_fetch_size</code>.
+ *
+ * @author Jan.Wang
+ *
+ */
+public enum FetchPlan {
+
+    USER_WITH_ROLE("userWithRole", "role"),
+
+    ROLE_WITH_USERS("roleWithUsers", "users"),
+
+    MODULE_WITH_CHILDREN("moduleWithChildren", "children"),
+
+    MODULE_WITH_BEHAVIORS("moduleWithBehaviors", "moduleBehaviors");
+
+    private final String profile;
+    private final String[] associations;
+
+    private FetchPlan(String profile, String... associations){
+        this.profile = profile;
+        this.associations = associations;
+    }
+
+    /**
+     * @return the name of the hibernate fetch profile
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return the association properties fetched by this plan
+     */
+    public String[] getAssociations() {
+        return associations.clone();
+    }
+
+}
@@ -6,10 +6,18 @@ import java.util.Map;
 
 import javax.inject.Inject;
 
+import org.hibernate.Hibernate;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.jan.webapp.hms.cache.EntityLookupCache;
 import org.jan.webapp.hms.dao.BaseDao;
+import org.jan.webapp.hms.dao.FetchPlan;
+import org.jan.webapp.hms.monitor.QueryStatistics;
+import org.jan.webapp.hms.monitor.RequestTrace;
+import org.jan.webapp.hms.monitor.RequestTrace.Phase;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -25,6 +33,9 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
     @Inject
     private SessionFactory sessionFactory;
 
+    @Inject
+    private QueryStatistics queryStatistics;
+
     /*
      * Gets current session.
      */
@@ -44,6 +55,73 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
         return q;
     }
 
+    private void record(String hql, Object params, long nanos) {
+        this.queryStatistics.record(hql, params, nanos);
+        RequestTrace.record(Phase.DB, nanos);
+    }
+
+    /*
+     * Runs a query and records its latency.
+     */
+    private List<T> list(Query q, String hql, Object params) {
+        long start = System.nanoTime();
+        try {
+            return q.list();
+        } finally {
+            record(hql, params, System.nanoTime() - start);
+        }
+    }
+
+    private Object uniqueResult(Query q, String hql, Object params) {
+        long start = System.nanoTime();
+        try {
+            return q.uniqueResult();
+        } finally {
+            record(hql, params, System.nanoTime() - start);
+        }
+    }
+
+    private int executeUpdate(Query q, String hql, Object params) {
+        long start = System.nanoTime();
+        try {
+            return q.executeUpdate();
+        } finally {
+            record(hql, params, System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Drops the object from the lookup cache of the current scope.
+     */
+    private void evictFromLookupCache(T t) {
+        EntityLookupCache cache = EntityLookupCache.current();
+        if (null != cache && null != t) {
+            Class<?> clazz = Hibernate.getClass(t);
+            ClassMetadata metadata = this.sessionFactory.getClassMetadata(clazz);
+            if (null != metadata)
+                cache.evict(clazz, metadata.getIdentifier(t, (SessionImplementor) this.getCurrentSession()));
+        }
+    }
+
+    /*
+     * Loads the associations of the fetch plan.
+     */
+    private void initialize(Object o, FetchPlan plan) {
+        if (null == o)
+            return;
+        ClassMetadata metadata = this.sessionFactory.getClassMetadata(Hibernate.getClass(o));
+        for (String association : plan.getAssociations())
+            Hibernate.initialize(metadata.getPropertyValue(o, association));
+    }
+
+    private List<T> initialize(List<T> l, FetchPlan plan) {
+        if (null != l) {
+            for (T t : l)
+                initialize(t, plan);
+        }
+        return l;
+    }
+
     private Query createQuery(String hql, Object[] params) {
         Query q = this.getCurrentSession().createQuery(hql);
         if (null != params && params.length > 0) {
@@ -79,7 +157,36 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
      */
     @Override
     public T get(Class<T> clazz, Serializable id) {
-        return (T) this.getCurrentSession().get(clazz, id);
+        EntityLookupCache cache = EntityLookupCache.current();
+        if (null == cache)
+            return (T) this.getCurrentSession().get(clazz, id);
+        Session session = this.getCurrentSession();
+        T t = cache.get(clazz, id);
+        // a scope may outlive the session the entity was loaded in
+        if (null == t || !session.contains(t)) {
+            t = (T) session.get(clazz, id);
+            cache.put(clazz, id, t);
+        }
+        return t;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jan.webapp.hms.dao.BaseDao#get(java.lang.Class, java.io.Serializable, org.jan.webapp.hms.dao.FetchPlan)
+     */
+    @Override
+    public T get(Class<T> clazz, Serializable id, FetchPlan plan) {
+        Session session = this.getCurrentSession();
+        session.enableFetchProfile(plan.getProfile());
+        try {
+            T t = get(clazz, id);
+            // a cached or already loaded instance may predate the plan
+            initialize(t, plan);
+            return t;
+        } finally {
+            session.disableFetchProfile(plan.getProfile());
+        }
     }
 
     /*
@@ -133,6 +240,7 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
      */
     @Override
     public void delete(T t) {
+        evictFromLookupCache(t);
         this.getCurrentSession().delete(t);
     }
 
@@ -144,6 +252,7 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
     @Override
     public void update(T t) {
         this.getCurrentSession().update(t);
+        evictFromLookupCache(t);
     }
 
     /*
@@ -154,6 +263,7 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
     @Override
     public void saveOrUpdate(T t) {
         this.getCurrentSession().saveOrUpdate(t);
+        evictFromLookupCache(t);
     }
 
     /*
@@ -163,7 +273,7 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
      */
     @Override
     public List<T> find(String hql) {
-        return this.getCurrentSession().createQuery(hql).list();
+        return list(this.getCurrentSession().createQuery(hql), hql, null);
     }
 
     /*
@@ -173,17 +283,27 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
      */
     @Override
     public List<T> find(String hql, Map<String, Object> params) {
-        return createQuery(hql, params).list();
+        return list(createQuery(hql, params), hql, params);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jan.webapp.hms.dao.BaseDao#find(java.lang.String, java.util.Map, org.jan.webapp.hms.dao.FetchPlan)
+     */
+    @Override
+    public List<T> find(String hql, Map<String, Object> params, FetchPlan plan) {
+        return initialize(find(hql, params), plan);
     }
 
     @Override
     public List<T> find(String hql, Object[] params) {
-        return createQuery(hql, params).list();
+        return list(createQuery(hql, params), hql, params);
     }
 
     @Override
     public List<T> find(String hql, List<Object> params) {
-        return createQuery(hql, params).list();
+        return list(createQuery(hql, params), hql, params);
     }
 
     /*
@@ -193,7 +313,17 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
      */
     @Override
     public List<T> find(String hql, Map<String, Object> params, int page, int rows) {
-        return createQuery(hql, params).setFirstResult((page - 1) * rows).setMaxResults(rows).list();
+        return list(createQuery(hql, params).setFirstResult((page - 1) * rows).setMaxResults(rows), hql, params);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jan.webapp.hms.dao.BaseDao#find(java.lang.String, java.util.Map, int, int, org.jan.webapp.hms.dao.FetchPlan)
+     */
+    @Override
+    public List<T> find(String hql, Map<String, Object> params, int page, int rows, FetchPlan plan) {
+        return initialize(find(hql, params, page, rows), plan);
     }
 
     /*
@@ -223,7 +353,7 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
      */
     @Override
     public Long count(String hql, Map<String, Object> params) {
-        return (Long) createQuery(hql, params).uniqueResult();
+        return (Long) uniqueResult(createQuery(hql, params), hql, params);
     }
 
     /*
@@ -243,7 +373,7 @@ public class BaseDaoImpl<T> implements BaseDao<T> {
      */
     @Override
     public int executeHql(String hql, Map<String, Object> params) {
-        return createQuery(hql, params).executeUpdate();
+        return executeUpdate(createQuery(hql, params), hql, params);
     }
 
 }
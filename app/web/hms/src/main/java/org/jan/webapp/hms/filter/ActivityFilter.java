@@ -0,0 +1,72 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.filter;
+
+import java.io.IOException;
+import java.util.Date;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.jan.common.utils.time.DateFormatUtils;
+import org.jan.webapp.hms.cache.OnlineCache;
+import org.jan.webapp.hms.model.page.Online;
+import org.jan.webapp.hms.util.Constants;
+import org.jan.webapp.hms.util.IpUtil;
+
+/**
+ * Records the activity of logged in users in the {@link OnlineCache}, so that only
+ * idle users expire. A user who was removed for being idle while its session is
+ * still alive is listed again on its next request.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class ActivityFilter implements Filter {
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpSession session = httpRequest.getSession(false);
+        if(null != session){
+            String loginName = (String) session.getAttribute(Constants.SESSION_NAME_LOGIN_NAME);
+            OnlineCache cache = OnlineCache.getInstance();
+            if(null != loginName && !cache.touch(loginName))
+                cache.addOnline(new Online(loginName, DateFormatUtils.format(new Date(), Constants.FORMAT_DATE_y_M_d_H_m_s), IpUtil.getIpAddr(httpRequest)));
+        }
+        chain.doFilter(request, response);
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+    }
+
+}
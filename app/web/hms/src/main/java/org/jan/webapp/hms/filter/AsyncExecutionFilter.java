@@ -0,0 +1,534 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.Hashtable;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+
+import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.jan.webapp.hms.util.Constants;
+import org.springframework.util.StringUtils;
+
+/**
+ * Opt-in asynchronous execution of blocking actions.
+ * <p>
+ * Requests whose path starts with one of the <code>paths</code> init parameter
+ * prefixes are put in Servlet 3 async mode and the rest of the filter chain, Struts
+ * and the action included, runs on a worker of this filter, so the connector thread
+ * is returned to the container while the action waits on the database. Only actions
+ * that write their own response ({@link org.jan.webapp.hms.action.BaseAction#responseJson(Object)})
+ * should be listed; forwarding results are not dispatched from the worker.
+ * <p>
+ * Init parameters:
+ * <ul>
+ * <li><code>paths</code> comma separated path prefixes, relative to the context path</li>
+ * <li><code>timeout</code> async timeout in milliseconds, 30000 by default; a timed out
+ * request gets a 503 and its worker is interrupted. The worker may still run, JDBC
+ * ignoring interrupts, but what it writes afterwards is dropped: the chain gets a
+ * response wrapper which stops forwarding to the container response, recycled by
+ * then, once the request timed out</li>
+ * <li><code>executor</code> <code>pool</code> (default) or <code>virtual</code> for a
+ * virtual-thread-per-task executor when the JDK provides one</li>
+ * <li><code>poolSize</code>, <code>queueSize</code> bounds of the <code>pool</code> executor</li>
+ * </ul>
+ * The log4j MDC of the container thread and the login name of the session
+ * are carried over to the worker. The filter must be mapped before every other
+ * filter, and all filters of the chain must be <code>async-supported</code>.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class AsyncExecutionFilter implements Filter {
+
+    private static final Logger logger = Logger.getLogger(AsyncExecutionFilter.class);
+
+    private static final long DEFAULT_TIMEOUT = 30000L;
+    private static final int DEFAULT_POOL_SIZE = 50;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private static final int RUNNING = 0;
+    private static final int DONE = 1;
+    private static final int TIMED_OUT = 2;
+
+    private String[] paths = new String[0];
+    private long timeout = DEFAULT_TIMEOUT;
+    private ExecutorService executor;
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String value = filterConfig.getInitParameter("paths");
+        if(null != value)
+            paths = StringUtils.tokenizeToStringArray(value, ",; \t\n");
+        value = filterConfig.getInitParameter("timeout");
+        if(null != value)
+            timeout = Long.parseLong(value.trim());
+        executor = createExecutor(filterConfig.getInitParameter("executor"),
+                intParameter(filterConfig, "poolSize", DEFAULT_POOL_SIZE),
+                intParameter(filterConfig, "queueSize", DEFAULT_QUEUE_SIZE));
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        if(DispatcherType.REQUEST != request.getDispatcherType() || !request.isAsyncSupported() || !isAsyncPath(httpRequest)){
+            chain.doFilter(request, response);
+            return;
+        }
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeout);
+        Worker worker = new Worker(asyncContext, chain, contextOf(httpRequest));
+        asyncContext.addListener(worker);
+        try {
+            worker.future = executor.submit(worker);
+        } catch (RejectedExecutionException e) {
+            logger.warn(String.format("Async executor saturated, rejecting %s", httpRequest.getRequestURI()));
+            worker.finish(TIMED_OUT);
+            ((HttpServletResponse) response).sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            asyncContext.complete();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+        if(null != executor)
+            executor.shutdownNow();
+    }
+
+    private boolean isAsyncPath(HttpServletRequest request){
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for(String p : paths){
+            if(path.startsWith(p))
+                return true;
+        }
+        return false;
+    }
+
+    /*
+     * Copies the MDC of the container thread and adds the login name of the session.
+     */
+    @SuppressWarnings("unchecked")
+    private Hashtable<String, Object> contextOf(HttpServletRequest request){
+        Hashtable<String, Object> context = new Hashtable<String, Object>();
+        Hashtable<String, Object> mdc = MDC.getContext();
+        if(null != mdc)
+            context.putAll(mdc);
+        HttpSession session = request.getSession(false);
+        if(null != session){
+            String loginName = (String) session.getAttribute(Constants.SESSION_NAME_LOGIN_NAME);
+            if(null != loginName)
+                context.put(Constants.MDC_KEY_LOGIN_NAME, loginName);
+        }
+        return context;
+    }
+
+    private ExecutorService createExecutor(String type, int poolSize, int queueSize){
+        if("virtual".equals(type)){
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                logger.info("Async actions run on virtual threads");
+                return (ExecutorService) factory.invoke(null);
+            } catch (Exception e) {
+                logger.warn(String.format("Virtual threads are not available on this JDK, using a pool of %d threads", poolSize));
+            }
+        }
+        return new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), new WorkerThreadFactory());
+    }
+
+    private static int intParameter(FilterConfig filterConfig, String name, int defaultValue){
+        String value = filterConfig.getInitParameter(name);
+        return null == value ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Runs the remaining chain of one request and completes it, unless it timed out first.
+     */
+    private static class Worker implements Runnable, AsyncListener {
+
+        private final AsyncContext asyncContext;
+        private final FilterChain chain;
+        private final Hashtable<String, Object> context;
+        private final AtomicInteger state = new AtomicInteger(RUNNING);
+        private final GuardedResponse response;
+        private volatile Future<?> future;
+
+        Worker(AsyncContext asyncContext, FilterChain chain, Hashtable<String, Object> context){
+            this.asyncContext = asyncContext;
+            this.chain = chain;
+            this.context = context;
+            this.response = new GuardedResponse((HttpServletResponse) asyncContext.getResponse(), this);
+        }
+
+        /*
+         * Whether the response may still be written, to be checked holding the lock of the worker.
+         */
+        boolean isWritable(){
+            return TIMED_OUT != state.get();
+        }
+
+        boolean finish(int to){
+            return state.compareAndSet(RUNNING, to);
+        }
+
+        @Override
+        public void run() {
+            for(Entry<String, Object> entry : context.entrySet())
+                MDC.put(entry.getKey(), entry.getValue());
+            try {
+                chain.doFilter(asyncContext.getRequest(), response);
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+                synchronized (this) {
+                    if(RUNNING == state.get() && !response.isCommitted()){
+                        try {
+                            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            } finally {
+                for(String key : context.keySet())
+                    MDC.remove(key);
+                if(finish(DONE))
+                    asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            // waits for a write of the worker in progress, the next ones are dropped
+            synchronized (this) {
+                if(!finish(TIMED_OUT))
+                    return;
+            }
+            logger.warn(String.format("Async action timed out: %s", ((HttpServletRequest) asyncContext.getRequest()).getRequestURI()));
+            Future<?> f = future;
+            if(null != f)
+                f.cancel(true);
+            HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+            if(!response.isCommitted())
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            asyncContext.complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            if(finish(DONE)){
+                Future<?> f = future;
+                if(null != f)
+                    f.cancel(true);
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+        }
+
+    }
+
+    /**
+     * The response given to the chain run by a worker, dropping what is written
+     * once the request timed out. Writes and status changes hold the lock of the
+     * worker, so that none is in progress when the timeout completes the request.
+     */
+    private static class GuardedResponse extends HttpServletResponseWrapper {
+
+        private final Worker worker;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        GuardedResponse(HttpServletResponse response, Worker worker){
+            super(response);
+            this.worker = worker;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            synchronized (worker) {
+                if(null == outputStream){
+                    final ServletOutputStream out = worker.isWritable() ? super.getOutputStream() : null;
+                    outputStream = new ServletOutputStream() {
+                        @Override
+                        public void write(int b) throws IOException {
+                            synchronized (worker) {
+                                if(worker.isWritable())
+                                    out.write(b);
+                            }
+                        }
+
+                        @Override
+                        public void write(byte[] b, int off, int len) throws IOException {
+                            synchronized (worker) {
+                                if(worker.isWritable())
+                                    out.write(b, off, len);
+                            }
+                        }
+
+                        @Override
+                        public void flush() throws IOException {
+                            synchronized (worker) {
+                                if(worker.isWritable())
+                                    out.flush();
+                            }
+                        }
+
+                        @Override
+                        public void close() throws IOException {
+                            synchronized (worker) {
+                                if(worker.isWritable())
+                                    out.close();
+                            }
+                        }
+                    };
+                }
+                return outputStream;
+            }
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            synchronized (worker) {
+                if(null == writer){
+                    final Writer out = worker.isWritable() ? super.getWriter() : null;
+                    writer = new PrintWriter(new Writer() {
+                        @Override
+                        public void write(char[] cbuf, int off, int len) throws IOException {
+                            synchronized (worker) {
+                                if(worker.isWritable())
+                                    out.write(cbuf, off, len);
+                            }
+                        }
+
+                        @Override
+                        public void flush() throws IOException {
+                            synchronized (worker) {
+                                if(worker.isWritable())
+                                    out.flush();
+                            }
+                        }
+
+                        @Override
+                        public void close() throws IOException {
+                            synchronized (worker) {
+                                if(worker.isWritable())
+                                    out.close();
+                            }
+                        }
+                    });
+                }
+                return writer;
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.sendError(sc, msg);
+            }
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.sendError(sc);
+            }
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.sendRedirect(location);
+            }
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.setStatus(sc);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.setDateHeader(name, date);
+            }
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.addDateHeader(name, date);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.addIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.addCookie(cookie);
+            }
+        }
+
+        @Override
+        public void setContentType(String type) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.setContentType(type);
+            }
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.setCharacterEncoding(charset);
+            }
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.setContentLength(len);
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.resetBuffer();
+            }
+        }
+
+        @Override
+        public void reset() {
+            synchronized (worker) {
+                if(worker.isWritable())
+                    super.reset();
+            }
+        }
+
+        @Override
+        public boolean isCommitted() {
+            synchronized (worker) {
+                return !worker.isWritable() || super.isCommitted();
+            }
+        }
+
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "hms-async-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.filter;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.log4j.Logger;
+import org.jan.webapp.hms.cache.EntityLookupCache;
+import org.jan.webapp.hms.util.Constants;
+
+/**
+ * Binds an {@link EntityLookupCache} scope to every request, so repeated lookups
+ * of the same entity within one request are served from memory.
+ * <p>
+ * The cache is exposed as the request attribute {@link Constants#REQUEST_NAME_LOOKUP_STATS}
+ * and its statistics are logged at debug level when the request completes.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class EntityLookupCacheFilter implements Filter {
+
+    private static final Logger logger = Logger.getLogger(EntityLookupCacheFilter.class);
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        request.setAttribute(Constants.REQUEST_NAME_LOOKUP_STATS, EntityLookupCache.open());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            EntityLookupCache cache = EntityLookupCache.close();
+            if(null != cache && logger.isDebugEnabled())
+                logger.debug(String.format("%s: %s", ((HttpServletRequest) request).getRequestURI(), cache));
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+    }
+
+}
@@ -0,0 +1,53 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.filter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.orm.hibernate4.support.OpenSessionInViewFilter;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link OpenSessionInViewFilter} that is switched off for the paths listed in the
+ * <code>excludedPaths</code> init parameter (comma separated prefixes relative to the
+ * context path). Those paths must not render lazily loaded associations, their
+ * services load what the view needs through a {@link org.jan.webapp.hms.dao.FetchPlan}.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class SelectiveOpenSessionInViewFilter extends OpenSessionInViewFilter {
+
+    private String[] excludedPaths = new String[0];
+
+    /**
+     * @param excludedPaths the excludedPaths to set
+     */
+    public void setExcludedPaths(String excludedPaths) {
+        this.excludedPaths = StringUtils.tokenizeToStringArray(excludedPaths, ",; \t\n");
+    }
+
+    /* (non-Javadoc)
+     * @see org.springframework.web.filter.OncePerRequestFilter#shouldNotFilter(javax.servlet.http.HttpServletRequest)
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for(String excludedPath : excludedPaths){
+            if(path.startsWith(excludedPath))
+                return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,67 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.filter;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.jan.webapp.hms.session.SessionStore;
+import org.jan.webapp.hms.util.Constants;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+/**
+ * Loads the {@link org.jan.webapp.hms.model.page.SessionInfo} of a logged in session
+ * from the {@link SessionStore} and exposes it to the views as the
+ * <code>sessionInfo</code> request attribute.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class SessionInfoFilter implements Filter {
+
+    private SessionStore sessionStore;
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        sessionStore = (SessionStore) WebApplicationContextUtils.getWebApplicationContext(filterConfig.getServletContext()).getBean(SessionStore.class);
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpSession session = ((HttpServletRequest) request).getSession(false);
+        if(null != session && null != session.getAttribute(Constants.SESSION_NAME_LOGIN_NAME))
+            request.setAttribute(Constants.REQUEST_NAME_SESSION_INFO, sessionStore.load(session.getId()));
+        chain.doFilter(request, response);
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+    }
+
+}
@@ -0,0 +1,88 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.filter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.log4j.Logger;
+import org.jan.webapp.hms.interceptor.StatementCountInterceptor;
+
+/**
+ * N+1 detector: counts the statements executed per request through
+ * {@link StatementCountInterceptor} and logs every sql executed at least
+ * <code>threshold</code> times (init parameter, 5 by default).
+ *
+ * @author Jan.Wang
+ *
+ */
+public class StatementCountFilter implements Filter {
+
+    private static final Logger logger = Logger.getLogger(StatementCountFilter.class);
+
+    private static final int DEFAULT_THRESHOLD = 5;
+
+    private int threshold = DEFAULT_THRESHOLD;
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String value = filterConfig.getInitParameter("threshold");
+        if(null != value)
+            threshold = Integer.parseInt(value.trim());
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        StatementCountInterceptor.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            report(((HttpServletRequest) request).getRequestURI(), StatementCountInterceptor.end());
+        }
+    }
+
+    private void report(String uri, Map<String, Integer> counts){
+        if(null == counts)
+            return;
+        int total = 0;
+        for(Entry<String, Integer> entry : counts.entrySet()){
+            total += entry.getValue();
+            if(entry.getValue() >= threshold)
+                logger.warn(String.format("N+1 suspect on %s: %d x %s", uri, entry.getValue(), entry.getKey()));
+        }
+        if(logger.isDebugEnabled())
+            logger.debug(String.format("%s: %d statements, %d distinct", uri, total, counts.size()));
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+    }
+
+}
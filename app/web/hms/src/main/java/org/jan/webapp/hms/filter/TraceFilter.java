@@ -0,0 +1,143 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.filter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.jan.webapp.hms.monitor.RequestTrace;
+import org.jan.webapp.hms.monitor.TraceBuffer;
+
+/**
+ * Traces every request with a {@link RequestTrace}: the Struts interceptors, the
+ * action and its result, the service calls, the HQL executions and the JSON
+ * serialization record their time in it, and the finished trace is kept in the
+ * {@link TraceBuffer}, whose slowest entries <code>monitorAction!traces</code> lists.
+ * <p>
+ * The phases are also sent to the browser in a <code>Server-Timing</code> header,
+ * set when the body starts, so it holds the time until the first byte. Mapped
+ * after the async execution filter, it traces async actions on their worker.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class TraceFilter implements Filter {
+
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#init(javax.servlet.FilterConfig)
+     */
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if(null != RequestTrace.current()){
+            // forwards and includes belong to the trace of the request
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        RequestTrace trace = RequestTrace.begin(httpRequest.getMethod(), httpRequest.getRequestURI());
+        TimingResponseWrapper wrapper = new TimingResponseWrapper((HttpServletResponse) response, trace);
+        try {
+            chain.doFilter(request, wrapper);
+            wrapper.addTiming();
+        } finally {
+            RequestTrace.end();
+            TraceBuffer.getInstance().add(trace.toTrace());
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.Filter#destroy()
+     */
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * Sets the <code>Server-Timing</code> header before anything of the body is written.
+     */
+    private static class TimingResponseWrapper extends HttpServletResponseWrapper {
+
+        private final RequestTrace trace;
+        private boolean timed;
+
+        TimingResponseWrapper(HttpServletResponse response, RequestTrace trace){
+            super(response);
+            this.trace = trace;
+        }
+
+        void addTiming(){
+            if(timed)
+                return;
+            timed = true;
+            if(!isCommitted())
+                setHeader(SERVER_TIMING, trace.toServerTiming());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addTiming();
+            super.sendRedirect(location);
+        }
+
+    }
+
+}
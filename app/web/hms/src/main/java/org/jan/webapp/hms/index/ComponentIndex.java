@@ -0,0 +1,74 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.jan.common.utils.io.IOUtils;
+import org.jan.webapp.hms.util.Constants;
+
+/**
+ * Reads the class lists written at build time by {@link ComponentIndexGenerator}.
+ *
+ * @author Jan.Wang
+ *
+ */
+public final class ComponentIndex {
+
+    private static final Logger logger = Logger.getLogger(ComponentIndex.class);
+
+    private ComponentIndex(){}
+
+    /**
+     * @return the names of the Spring component classes, or null without an index
+     */
+    public static List<String> components(){
+        return read(Constants.COMPONENT_INDEX_PATH);
+    }
+
+    /**
+     * @return the names of the JPA entity classes, or null without an index
+     */
+    public static List<String> entities(){
+        return read(Constants.ENTITY_INDEX_PATH);
+    }
+
+    private static List<String> read(String path){
+        InputStream is = ComponentIndex.class.getClassLoader().getResourceAsStream(path);
+        if(null == is){
+            logger.info(String.format("No %s index found, falling back to classpath scanning", path));
+            return null;
+        }
+        List<String> names = new ArrayList<String>();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+            for(String line = reader.readLine(); null != line; line = reader.readLine()){
+                line = line.trim();
+                if(line.length() > 0 && !line.startsWith("#"))
+                    names.add(line);
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return names;
+    }
+
+}
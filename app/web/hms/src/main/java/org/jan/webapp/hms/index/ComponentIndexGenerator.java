@@ -0,0 +1,106 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.index;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jan.common.utils.file.FileUtils;
+import org.jan.common.utils.io.IOUtils;
+import org.jan.webapp.hms.util.Constants;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
+
+/**
+ * Build-time index of the hms classes, run by the hms <code>pom.xml</code> in the
+ * <code>process-classes</code> phase.
+ * <p>
+ * It reads the compiled classes with ASM, without loading them, and writes the names
+ * of the Spring components (classes annotated, directly or through a stereotype, with
+ * <code>@Component</code>) and of the JPA entities next to them. Configuration classes
+ * are left out, they are imported by {@link org.jan.webapp.hms.config.ComponentConfig}. The application
+ * context and the session factory read these lists through {@link ComponentIndex}
+ * instead of scanning the classpath at every boot.
+ * <p>
+ * Usage: <code>ComponentIndexGenerator &lt;classes dir&gt;</code>
+ *
+ * @author Jan.Wang
+ *
+ */
+public final class ComponentIndexGenerator {
+
+    static final String BASE_PACKAGE = "org/jan/webapp/hms";
+
+    private static final String COMPONENT = "org.springframework.stereotype.Component";
+    private static final String CONFIGURATION = "org.springframework.context.annotation.Configuration";
+    private static final String ENTITY = "javax.persistence.Entity";
+
+    private final SimpleMetadataReaderFactory readerFactory = new SimpleMetadataReaderFactory();
+    private final List<String> components = new ArrayList<String>();
+    private final List<String> entities = new ArrayList<String>();
+
+    private ComponentIndexGenerator(){}
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 1)
+            throw new IllegalArgumentException("Usage: ComponentIndexGenerator <classes dir>");
+        File classesDir = new File(args[0]);
+        ComponentIndexGenerator generator = new ComponentIndexGenerator();
+        generator.process(new File(classesDir, BASE_PACKAGE));
+        write(new File(classesDir, Constants.COMPONENT_INDEX_PATH), generator.components);
+        write(new File(classesDir, Constants.ENTITY_INDEX_PATH), generator.entities);
+        System.out.println(String.format("[ComponentIndexGenerator] %d components, %d entities indexed",
+                generator.components.size(), generator.entities.size()));
+    }
+
+    private void process(File dir) throws IOException {
+        File[] files = dir.listFiles();
+        if(null == files)
+            return;
+        for(File file : files){
+            if(file.isDirectory()){
+                process(file);
+            }else if(file.getName().endsWith(".class")){
+                MetadataReader reader = readerFactory.getMetadataReader(new FileSystemResource(file));
+                AnnotationMetadata metadata = reader.getAnnotationMetadata();
+                if(!metadata.isConcrete() || !metadata.isIndependent())
+                    continue;
+                if((metadata.hasAnnotation(COMPONENT) || metadata.hasMetaAnnotation(COMPONENT)) && !metadata.hasAnnotation(CONFIGURATION))
+                    components.add(metadata.getClassName());
+                if(metadata.hasAnnotation(ENTITY))
+                    entities.add(metadata.getClassName());
+            }
+        }
+    }
+
+    private static void write(File file, List<String> names) throws IOException {
+        Collections.sort(names);
+        FileUtils.forceMkdir(file.getParentFile());
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write("# generated by ComponentIndexGenerator, do not edit\n");
+            for(String name : names)
+                writer.write(name + "\n");
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+    }
+
+}
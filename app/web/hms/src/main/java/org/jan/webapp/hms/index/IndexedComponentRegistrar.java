@@ -0,0 +1,75 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.index;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.jan.webapp.hms.exception.AppException;
+import org.springframework.beans.factory.annotation.AnnotatedGenericBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
+import org.springframework.context.annotation.AnnotationBeanNameGenerator;
+import org.springframework.context.annotation.ClassPathBeanDefinitionScanner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Registers the components listed in the build-time {@link ComponentIndex}, and only
+ * scans the hms packages when there is no index, e.g. when running from an IDE
+ * without the Maven build. Configuration classes are imported by
+ * {@link org.jan.webapp.hms.config.ComponentConfig} and left to Spring.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class IndexedComponentRegistrar implements ImportBeanDefinitionRegistrar {
+
+    private static final Logger logger = Logger.getLogger(IndexedComponentRegistrar.class);
+
+    static final String BASE_PACKAGE = "org.jan.webapp.hms";
+
+    /* (non-Javadoc)
+     * @see org.springframework.context.annotation.ImportBeanDefinitionRegistrar#registerBeanDefinitions(org.springframework.core.type.AnnotationMetadata, org.springframework.beans.factory.support.BeanDefinitionRegistry)
+     */
+    @Override
+    public void registerBeanDefinitions(AnnotationMetadata importingClassMetadata, BeanDefinitionRegistry registry) {
+        List<String> components = ComponentIndex.components();
+        if(null == components){
+            ClassPathBeanDefinitionScanner scanner = new ClassPathBeanDefinitionScanner(registry);
+            scanner.addExcludeFilter(new AnnotationTypeFilter(Configuration.class));
+            scanner.scan(BASE_PACKAGE);
+            return;
+        }
+        AnnotatedBeanDefinitionReader reader = new AnnotatedBeanDefinitionReader(registry);
+        AnnotationBeanNameGenerator nameGenerator = new AnnotationBeanNameGenerator();
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        int count = 0;
+        for(String name : components){
+            Class<?> clazz;
+            try {
+                clazz = ClassUtils.forName(name, classLoader);
+            } catch (ClassNotFoundException e) {
+                throw new AppException(String.format("Indexed component %s not found, rebuild the component index", name), e);
+            }
+            if(registry.containsBeanDefinition(nameGenerator.generateBeanName(new AnnotatedGenericBeanDefinition(clazz), registry)))
+                continue;
+            reader.registerBean(clazz);
+            count++;
+        }
+        logger.info(String.format("%d components registered from the component index", count));
+    }
+
+}
@@ -11,11 +11,42 @@
  *************************************************************************/
 package org.jan.webapp.hms.interceptor;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.apache.log4j.Logger;
+import org.apache.struts2.ServletActionContext;
+import org.jan.webapp.hms.util.Constants;
+
+import com.opensymphony.xwork2.Action;
+import com.opensymphony.xwork2.ActionInvocation;
+import com.opensymphony.xwork2.interceptor.AbstractInterceptor;
 
 /**
+ * Struts interceptor letting through the requests of logged in sessions only,
+ * the others being answered 401. It is the first interceptor of the
+ * <code>authStack</code> declared in <code>struts.xml</code>.
+ *
  * @author Jan.Wang
  *
  */
-public class AuthInterceptor {
+public class AuthInterceptor extends AbstractInterceptor {
+    private static final long serialVersionUID = -2695232851330766113L;
+
+    private static final Logger logger = Logger.getLogger(AuthInterceptor.class);
+
+    /* (non-Javadoc)
+     * @see com.opensymphony.xwork2.interceptor.AbstractInterceptor#intercept(com.opensymphony.xwork2.ActionInvocation)
+     */
+    @Override
+    public String intercept(ActionInvocation invocation) throws Exception {
+        HttpSession session = ServletActionContext.getRequest().getSession(false);
+        if(null != session && null != session.getAttribute(Constants.SESSION_NAME_LOGIN_NAME))
+            return invocation.invoke();
+        logger.warn("Unauthenticated request to " + invocation.getProxy().getActionName() + "!" + invocation.getProxy().getMethod()
+                + " from " + ServletActionContext.getRequest().getRemoteAddr());
+        ServletActionContext.getResponse().sendError(HttpServletResponse.SC_UNAUTHORIZED);
+        return Action.NONE;
+    }
 
 }
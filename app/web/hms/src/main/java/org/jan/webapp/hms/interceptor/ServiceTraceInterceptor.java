@@ -0,0 +1,54 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.interceptor;
+
+import java.lang.reflect.Method;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jan.webapp.hms.monitor.QueryStatistics;
+import org.jan.webapp.hms.monitor.RequestTrace;
+
+/**
+ * Records the service calls of a traced request in its {@link RequestTrace},
+ * advising the methods of the <code>DruidConfig</code> service pointcut. It also
+ * tells {@link QueryStatistics} which service method issues the queries.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class ServiceTraceInterceptor implements MethodInterceptor {
+
+    /* (non-Javadoc)
+     * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
+     */
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String previous = QueryStatistics.enterService(invocation.getThis(), invocation.getMethod());
+        try {
+            RequestTrace trace = RequestTrace.current();
+            if(null == trace)
+                return invocation.proceed();
+            long start = System.nanoTime();
+            trace.enterService();
+            try {
+                return invocation.proceed();
+            } finally {
+                Method method = invocation.getMethod();
+                trace.exitService(method.getDeclaringClass().getSimpleName() + "." + method.getName(), System.nanoTime() - start);
+            }
+        } finally {
+            QueryStatistics.exitService(previous);
+        }
+    }
+
+}
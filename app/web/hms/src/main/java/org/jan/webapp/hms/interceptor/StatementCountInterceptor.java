@@ -0,0 +1,64 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.interceptor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.EmptyInterceptor;
+
+/**
+ * Hibernate interceptor counting the statements prepared on the current thread,
+ * grouped by sql, between {@link #begin()} and {@link #end()}.
+ * <p>
+ * The same sql prepared many times in one request is the signature of an N+1 lazy load.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class StatementCountInterceptor extends EmptyInterceptor {
+    private static final long serialVersionUID = -3318207428962105874L;
+
+    private static final ThreadLocal<Map<String, Integer>> counts = new ThreadLocal<Map<String, Integer>>();
+
+    /**
+     * Starts counting on the current thread.
+     */
+    public static void begin(){
+        counts.set(new HashMap<String, Integer>());
+    }
+
+    /**
+     * Stops counting on the current thread.
+     *
+     * @return the number of executions by sql, or null if counting was not started
+     */
+    public static Map<String, Integer> end(){
+        Map<String, Integer> m = counts.get();
+        counts.remove();
+        return m;
+    }
+
+    /* (non-Javadoc)
+     * @see org.hibernate.EmptyInterceptor#onPrepareStatement(java.lang.String)
+     */
+    @Override
+    public String onPrepareStatement(String sql) {
+        Map<String, Integer> m = counts.get();
+        if(null != m){
+            Integer count = m.get(sql);
+            m.put(sql, null == count ? 1 : count + 1);
+        }
+        return sql;
+    }
+
+}
@@ -0,0 +1,76 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.interceptor;
+
+import org.jan.webapp.hms.monitor.RequestTrace;
+import org.jan.webapp.hms.monitor.RequestTrace.Phase;
+
+import com.opensymphony.xwork2.ActionInvocation;
+import com.opensymphony.xwork2.interceptor.AbstractInterceptor;
+import com.opensymphony.xwork2.interceptor.PreResultListener;
+
+/**
+ * Struts interceptor timing the phases of an action for the {@link RequestTrace}.
+ * It is declared twice in <code>struts.xml</code>: first of the stack it marks
+ * the entry in the interceptors, last of the stack (<code>action</code> parameter
+ * true) it records the time spent in the interceptors before the action, in the
+ * action method, and in the result.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class TraceInterceptor extends AbstractInterceptor {
+    private static final long serialVersionUID = 4390807251946585247L;
+
+    private boolean action;
+
+    /**
+     * @param action true for the instance closest to the action
+     */
+    public void setAction(boolean action) {
+        this.action = action;
+    }
+
+    /* (non-Javadoc)
+     * @see com.opensymphony.xwork2.interceptor.AbstractInterceptor#intercept(com.opensymphony.xwork2.ActionInvocation)
+     */
+    @Override
+    public String intercept(ActionInvocation invocation) throws Exception {
+        final RequestTrace trace = RequestTrace.current();
+        if(null == trace)
+            return invocation.invoke();
+        if(!action){
+            trace.enterChain(System.nanoTime());
+            return invocation.invoke();
+        }
+        final long start = System.nanoTime();
+        if(0 != trace.getChainStart())
+            trace.add(Phase.INTERCEPTORS, start - trace.getChainStart());
+        final long[] resultStart = new long[1];
+        invocation.addPreResultListener(new PreResultListener() {
+            @Override
+            public void beforeResult(ActionInvocation invocation, String resultCode) {
+                resultStart[0] = System.nanoTime();
+                trace.add(Phase.ACTION, resultStart[0] - start);
+            }
+        });
+        try {
+            return invocation.invoke();
+        } finally {
+            if(0 == resultStart[0])
+                trace.add(Phase.ACTION, System.nanoTime() - start);
+            else
+                trace.add(Phase.RESULT, System.nanoTime() - resultStart[0]);
+        }
+    }
+
+}
@@ -12,11 +12,14 @@
 package org.jan.webapp.hms.listener;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
+import org.apache.log4j.Logger;
 import org.jan.common.utils.io.IOUtils;
 import org.jan.common.utils.xml.JAXBXmlUtils;
 import org.jan.webapp.hms.cache.MenuCache;
@@ -25,24 +28,47 @@ import org.jan.webapp.hms.model.page.User;
 import org.jan.webapp.hms.model.xml.InitialData;
 import org.jan.webapp.hms.model.xml.MenuData;
 import org.jan.webapp.hms.model.xml.UserData;
+import org.jan.webapp.hms.service.ModuleService;
 import org.jan.webapp.hms.service.UserService;
+import org.jan.webapp.hms.startup.StartupOrchestrator;
+import org.jan.webapp.hms.startup.StartupStage;
 import org.jan.webapp.hms.util.Constants;
 import org.jan.webapp.hms.util.Encrypt;
+import org.springframework.core.env.Environment;
+import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 
 /**
+ * Initializes the application data once Spring is ready.
+ * <p>
+ * The work is split in {@link StartupStage}s run by a {@link StartupOrchestrator}:
+ * the initial data is parsed first, then the user repair, the menu tree and the
+ * module closure run in parallel. With <code>startup_async=true</code> the listener
+ * returns at once and the stages finish in the background, the readiness servlet
+ * telling when the critical ones are done; otherwise it waits for all of them.
+ * The orchestrator is published as the <code>startup</code> context attribute.
+ *
  * @author Jan.Wang
  *
  */
 public class DeployListener implements ServletContextListener {
 
+    private static final Logger logger = Logger.getLogger(DeployListener.class);
+
+    private static final int DEFAULT_POOL_SIZE = 4;
+
     private UserService userService;
+    private ModuleService moduleService;
+    private volatile InitialData initialData;
+    private StartupOrchestrator orchestrator;
 
     /* (non-Javadoc)
      * @see javax.servlet.ServletContextListener#contextDestroyed(javax.servlet.ServletContextEvent)
      */
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        if(null != orchestrator)
+            orchestrator.stop();
     }
 
     /* (non-Javadoc)
@@ -50,22 +76,57 @@ public class DeployListener implements ServletContextListener {
      */
     @Override
     public void contextInitialized(ServletContextEvent sce) {
-        InitialData data = getInitialData();
-        if(null != data){
-            userService = (UserService) WebApplicationContextUtils.getWebApplicationContext(sce.getServletContext()).getBean(UserService.class);
-            repairUser(data.getUserData());
-            initMenu("-1", data.getMenuData());
+        WebApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(sce.getServletContext());
+        userService = (UserService) context.getBean(UserService.class);
+        moduleService = (ModuleService) context.getBean(ModuleService.class);
+        Environment environment = context.getEnvironment();
+        orchestrator = new StartupOrchestrator(environment.getProperty("startup_poolSize", Integer.class, DEFAULT_POOL_SIZE));
+        orchestrator.addStage(new StartupStage("initialData", true) {
+            @Override
+            protected void run() throws Exception {
+                initialData = getInitialData();
+            }
+        }).addStage(new StartupStage("repairUser", true, "initialData") {
+            @Override
+            protected void run() throws Exception {
+                if(null != initialData)
+                    repairUser(initialData.getUserData());
+            }
+        }).addStage(new StartupStage("menu", true, "initialData") {
+            @Override
+            protected void run() throws Exception {
+                if(null != initialData){
+                    List<Menu> menus = new ArrayList<Menu>();
+                    initMenu(menus, "-1", initialData.getMenuData());
+                    MenuCache.getInstance().setMenuList(menus);
+                }
+            }
+        }).addStage(new StartupStage("moduleClosure", true) {
+            @Override
+            protected void run() throws Exception {
+                moduleService.loadModuleClosure();
+            }
+        });
+        sce.getServletContext().setAttribute(Constants.CONTEXT_NAME_STARTUP, orchestrator);
+        orchestrator.start();
+        if(environment.getProperty("startup_async", Boolean.class, Boolean.FALSE))
+            return;
+        try {
+            orchestrator.await(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        if(!orchestrator.isReady())
+            logger.error("Critical startup stages failed, see the startup report");
     }
 
-    private void initMenu(String pid, MenuData menuData){
+    private void initMenu(List<Menu> menus, String pid, MenuData menuData){
         if(null != menuData){
-            MenuCache cache = MenuCache.getInstance();
-            cache.addMenu(new Menu(pid, menuData));
+            menus.add(new Menu(pid, menuData));
             List<MenuData> datas = menuData.getMenuList();
             if(null != datas){
                 for(MenuData data : datas){
-                    initMenu(menuData.getId(), data);
+                    initMenu(menus, menuData.getId(), data);
                 }
             }
 
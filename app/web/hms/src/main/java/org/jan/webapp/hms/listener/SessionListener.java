@@ -17,9 +17,11 @@ import javax.servlet.http.HttpSession;
 import javax.servlet.http.HttpSessionEvent;
 import javax.servlet.http.HttpSessionListener;
 
-import org.jan.webapp.hms.model.page.SessionInfo;
+import org.jan.webapp.hms.cache.OnlineCache;
 import org.jan.webapp.hms.service.UserService;
+import org.jan.webapp.hms.session.SessionStore;
 import org.jan.webapp.hms.util.Constants;
+import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.WebApplicationContextUtils;
 
 /**
@@ -29,12 +31,14 @@ import org.springframework.web.context.support.WebApplicationContextUtils;
 public class SessionListener implements ServletContextListener, HttpSessionListener {
 
     private UserService userService;
+    private SessionStore sessionStore;
 
     /* (non-Javadoc)
      * @see javax.servlet.ServletContextListener#contextDestroyed(javax.servlet.ServletContextEvent)
      */
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        OnlineCache.getInstance().stopExpiry();
     }
 
     /* (non-Javadoc)
@@ -42,7 +46,10 @@ public class SessionListener implements ServletContextListener, HttpSessionListe
      */
     @Override
     public void contextInitialized(ServletContextEvent sce) {
-        userService = (UserService) WebApplicationContextUtils.getWebApplicationContext(sce.getServletContext()).getBean(UserService.class);
+        WebApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(sce.getServletContext());
+        userService = (UserService) context.getBean(UserService.class);
+        sessionStore = (SessionStore) context.getBean(SessionStore.class);
+        OnlineCache.getInstance().startExpiry(context.getEnvironment().getProperty("online_idleTimeout", Integer.class, OnlineCache.DEFAULT_IDLE_TIMEOUT));
 
     }
 
@@ -60,9 +67,10 @@ public class SessionListener implements ServletContextListener, HttpSessionListe
     public void sessionDestroyed(HttpSessionEvent se) {
         HttpSession session = se.getSession();
         if(null != session){
-            SessionInfo sessionInfo = (SessionInfo) session.getAttribute(Constants.SESSION_NAME_SESSION);
-            if(null != sessionInfo)
-                userService.removeOnline(sessionInfo.getLoginName());
+            sessionStore.remove(session.getId());
+            String loginName = (String) session.getAttribute(Constants.SESSION_NAME_LOGIN_NAME);
+            if(null != loginName)
+                userService.removeOnline(loginName);
         }
     }
 
@@ -25,12 +25,21 @@ import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.FetchProfile;
+import org.hibernate.annotations.FetchProfiles;
+
 /**
  * @author Jan.Wang
  *
  */
 @Entity
 @Table(name = "TAB_MODULE", schema = "")
+@FetchProfiles({
+        @FetchProfile(name = "moduleWithChildren", fetchOverrides = {
+                @FetchProfile.FetchOverride(entity = ModuleEntity.class, association = "children", mode = FetchMode.JOIN) }),
+        @FetchProfile(name = "moduleWithBehaviors", fetchOverrides = {
+                @FetchProfile.FetchOverride(entity = ModuleEntity.class, association = "moduleBehaviors", mode = FetchMode.JOIN) }) })
 public class ModuleEntity implements Serializable {
     private static final long serialVersionUID = 8409255999115853976L;
 
@@ -26,12 +26,17 @@ import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.FetchProfile;
+
 /**
  * @author Jan.Wang
  *
  */
 @Entity
 @Table(name = "TAB_ROLE", schema = "")
+@FetchProfile(name = "roleWithUsers", fetchOverrides = {
+        @FetchProfile.FetchOverride(entity = RoleEntity.class, association = "users", mode = FetchMode.JOIN) })
 public class RoleEntity implements Serializable {
     private static final long serialVersionUID = -7435536225440496923L;
 
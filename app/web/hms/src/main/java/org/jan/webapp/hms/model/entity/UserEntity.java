@@ -24,12 +24,17 @@ import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.FetchProfile;
+
 /**
  * @author Jan.Wang
  *
  */
 @Entity
 @Table(name = "TAB_USER", schema = "")
+@FetchProfile(name = "userWithRole", fetchOverrides = {
+        @FetchProfile.FetchOverride(entity = UserEntity.class, association = "role", mode = FetchMode.JOIN) })
 public class UserEntity implements Serializable {
     private static final long serialVersionUID = 436350781326471647L;
 
@@ -0,0 +1,135 @@
+package org.jan.webapp.hms.model.page;
+
+import java.io.Serializable;
+
+/**
+ * Snapshot of the connection pool load and the sizes recommended for it.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class PoolAdvice implements Serializable {
+    private static final long serialVersionUID = -3186201540370213571L;
+
+    private int activeCount;
+    private int waitThreadCount;
+    private int maxActive;
+    private int minIdle;
+    private int samples;
+    private double borrowsPerSecond;
+    private double meanActive;
+    private double meanHoldMillis;
+    private double saturatedRatio;
+    private int peakDemand;
+    private int p95Demand;
+    private int recommendedMaxActive;
+    private int recommendedMinIdle;
+    private boolean autoSize;
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+    public void setActiveCount(int activeCount) {
+        this.activeCount = activeCount;
+    }
+    /**
+     * @return threads waiting for a connection at the last sample
+     */
+    public int getWaitThreadCount() {
+        return waitThreadCount;
+    }
+    public void setWaitThreadCount(int waitThreadCount) {
+        this.waitThreadCount = waitThreadCount;
+    }
+    public int getMaxActive() {
+        return maxActive;
+    }
+    public void setMaxActive(int maxActive) {
+        this.maxActive = maxActive;
+    }
+    public int getMinIdle() {
+        return minIdle;
+    }
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+    /**
+     * @return number of samples in the window
+     */
+    public int getSamples() {
+        return samples;
+    }
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+    /**
+     * @return arrival rate of connection borrows (lambda)
+     */
+    public double getBorrowsPerSecond() {
+        return borrowsPerSecond;
+    }
+    public void setBorrowsPerSecond(double borrowsPerSecond) {
+        this.borrowsPerSecond = borrowsPerSecond;
+    }
+    /**
+     * @return mean number of connections in use (L)
+     */
+    public double getMeanActive() {
+        return meanActive;
+    }
+    public void setMeanActive(double meanActive) {
+        this.meanActive = meanActive;
+    }
+    /**
+     * @return mean time a connection is held, L / lambda (W)
+     */
+    public double getMeanHoldMillis() {
+        return meanHoldMillis;
+    }
+    public void setMeanHoldMillis(double meanHoldMillis) {
+        this.meanHoldMillis = meanHoldMillis;
+    }
+    /**
+     * @return ratio of the samples with threads waiting for a connection
+     */
+    public double getSaturatedRatio() {
+        return saturatedRatio;
+    }
+    public void setSaturatedRatio(double saturatedRatio) {
+        this.saturatedRatio = saturatedRatio;
+    }
+    /**
+     * @return highest number of connections in use or waited for
+     */
+    public int getPeakDemand() {
+        return peakDemand;
+    }
+    public void setPeakDemand(int peakDemand) {
+        this.peakDemand = peakDemand;
+    }
+    public int getP95Demand() {
+        return p95Demand;
+    }
+    public void setP95Demand(int p95Demand) {
+        this.p95Demand = p95Demand;
+    }
+    public int getRecommendedMaxActive() {
+        return recommendedMaxActive;
+    }
+    public void setRecommendedMaxActive(int recommendedMaxActive) {
+        this.recommendedMaxActive = recommendedMaxActive;
+    }
+    public int getRecommendedMinIdle() {
+        return recommendedMinIdle;
+    }
+    public void setRecommendedMinIdle(int recommendedMinIdle) {
+        this.recommendedMinIdle = recommendedMinIdle;
+    }
+    public boolean isAutoSize() {
+        return autoSize;
+    }
+    public void setAutoSize(boolean autoSize) {
+        this.autoSize = autoSize;
+    }
+
+}
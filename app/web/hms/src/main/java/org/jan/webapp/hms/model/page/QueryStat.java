@@ -0,0 +1,143 @@
+package org.jan.webapp.hms.model.page;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Latency distribution of one normalized HQL statement issued from one service method,
+ * in microseconds, with samples of its slow executions.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class QueryStat implements Serializable {
+    private static final long serialVersionUID = 6913257716842934851L;
+
+    private String hql;
+    private String caller;
+    private long count;
+    private double mean;
+    private long p50;
+    private long p90;
+    private long p99;
+    private long max;
+    private long slowCount;
+    private List<SlowQuery> slowQueries;
+
+    public String getHql() {
+        return hql;
+    }
+    public void setHql(String hql) {
+        this.hql = hql;
+    }
+    /**
+     * @return the service method issuing the statement
+     */
+    public String getCaller() {
+        return caller;
+    }
+    public void setCaller(String caller) {
+        this.caller = caller;
+    }
+    public long getCount() {
+        return count;
+    }
+    public void setCount(long count) {
+        this.count = count;
+    }
+    public double getMean() {
+        return mean;
+    }
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+    public long getP50() {
+        return p50;
+    }
+    public void setP50(long p50) {
+        this.p50 = p50;
+    }
+    public long getP90() {
+        return p90;
+    }
+    public void setP90(long p90) {
+        this.p90 = p90;
+    }
+    public long getP99() {
+        return p99;
+    }
+    public void setP99(long p99) {
+        this.p99 = p99;
+    }
+    public long getMax() {
+        return max;
+    }
+    public void setMax(long max) {
+        this.max = max;
+    }
+    /**
+     * @return number of executions over the slow query threshold
+     */
+    public long getSlowCount() {
+        return slowCount;
+    }
+    public void setSlowCount(long slowCount) {
+        this.slowCount = slowCount;
+    }
+    /**
+     * @return the most recent slow executions
+     */
+    public List<SlowQuery> getSlowQueries() {
+        return slowQueries;
+    }
+    public void setSlowQueries(List<SlowQuery> slowQueries) {
+        this.slowQueries = slowQueries;
+    }
+
+    /**
+     * One execution over the slow query threshold.
+     */
+    public static class SlowQuery implements Serializable {
+        private static final long serialVersionUID = -4527180466219036372L;
+
+        private long time;
+        private long micros;
+        private String params;
+        private String stack;
+
+        public SlowQuery(){}
+
+        public SlowQuery(long time, long micros, String params, String stack){
+            this.time = time;
+            this.micros = micros;
+            this.params = params;
+            this.stack = stack;
+        }
+
+        public long getTime() {
+            return time;
+        }
+        public void setTime(long time) {
+            this.time = time;
+        }
+        public long getMicros() {
+            return micros;
+        }
+        public void setMicros(long micros) {
+            this.micros = micros;
+        }
+        public String getParams() {
+            return params;
+        }
+        public void setParams(String params) {
+            this.params = params;
+        }
+        public String getStack() {
+            return stack;
+        }
+        public void setStack(String stack) {
+            this.stack = stack;
+        }
+    }
+
+}
@@ -3,15 +3,17 @@ package org.jan.webapp.hms.model.page;
 import java.io.Serializable;
 
 /**
+ * What a logged in session needs to know about its user. Kept in the
+ * {@link org.jan.webapp.hms.session.SessionStore}, not in the <code>HttpSession</code>.
+ *
  * @author Jan.Wang
  *
  */
 public class SessionInfo implements Serializable {
-    private static final long serialVersionUID = -9125191306247361462L;
+    private static final long serialVersionUID = 5520416093561947318L;
 
     private String userId;
     private String loginName;
-    private String loginPassword;
     private String ip;
     /**
      * @return the userId
@@ -37,18 +39,6 @@ public class SessionInfo implements Serializable {
     public void setLoginName(String loginName) {
         this.loginName = loginName;
     }
-    /**
-     * @return the loginPassword
-     */
-    public String getLoginPassword() {
-        return loginPassword;
-    }
-    /**
-     * @param loginPassword the loginPassword to set
-     */
-    public void setLoginPassword(String loginPassword) {
-        this.loginPassword = loginPassword;
-    }
     /**
      * @return the ip
      */
@@ -0,0 +1,122 @@
+package org.jan.webapp.hms.model.page;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Timing breakdown of one request, in microseconds. Phases nest, the service
+ * calls run within the action and the database within the service calls, so
+ * they do not add up to the total.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class Trace implements Serializable {
+    private static final long serialVersionUID = -2295460941580281437L;
+
+    private long time;
+    private String method;
+    private String uri;
+    private long micros;
+    private List<Span> phases;
+    private List<Span> services;
+
+    public Trace(){}
+
+    public Trace(long time, String method, String uri, long micros, List<Span> phases, List<Span> services){
+        this.time = time;
+        this.method = method;
+        this.uri = uri;
+        this.micros = micros;
+        this.phases = phases;
+        this.services = services;
+    }
+
+    /**
+     * @return start of the request, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+    public void setTime(long time) {
+        this.time = time;
+    }
+    public String getMethod() {
+        return method;
+    }
+    public void setMethod(String method) {
+        this.method = method;
+    }
+    public String getUri() {
+        return uri;
+    }
+    public void setUri(String uri) {
+        this.uri = uri;
+    }
+    public long getMicros() {
+        return micros;
+    }
+    public void setMicros(long micros) {
+        this.micros = micros;
+    }
+    /**
+     * @return the time spent in each phase the request went through
+     */
+    public List<Span> getPhases() {
+        return phases;
+    }
+    public void setPhases(List<Span> phases) {
+        this.phases = phases;
+    }
+    /**
+     * @return the service calls, in the order they returned
+     */
+    public List<Span> getServices() {
+        return services;
+    }
+    public void setServices(List<Span> services) {
+        this.services = services;
+    }
+
+    /**
+     * Time spent in a phase or a service method.
+     */
+    public static class Span implements Serializable {
+        private static final long serialVersionUID = 3302155795932962781L;
+
+        private String name;
+        private long micros;
+        private int count;
+
+        public Span(){}
+
+        public Span(String name, long micros, int count){
+            this.name = name;
+            this.micros = micros;
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+        public void setName(String name) {
+            this.name = name;
+        }
+        public long getMicros() {
+            return micros;
+        }
+        public void setMicros(long micros) {
+            this.micros = micros;
+        }
+        /**
+         * @return number of times the phase was entered
+         */
+        public int getCount() {
+            return count;
+        }
+        public void setCount(int count) {
+            this.count = count;
+        }
+    }
+
+}
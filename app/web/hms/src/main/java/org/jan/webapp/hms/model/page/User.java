@@ -138,4 +138,32 @@ public class User implements Serializable {
         this.roleId = roleId;
     }
 
+    //for model
+    private int page;
+    private int rows;
+    /**
+     * @return the page
+     */
+    public int getPage() {
+        return page;
+    }
+    /**
+     * @param page the page to set
+     */
+    public void setPage(int page) {
+        this.page = page;
+    }
+    /**
+     * @return the rows
+     */
+    public int getRows() {
+        return rows;
+    }
+    /**
+     * @param rows the rows to set
+     */
+    public void setRows(int rows) {
+        this.rows = rows;
+    }
+
 }
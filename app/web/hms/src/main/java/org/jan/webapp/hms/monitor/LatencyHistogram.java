@@ -0,0 +1,95 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the manner of an HDR
+ * histogram: values below 32 have a bucket each, above that every power of two is
+ * split in 16 buckets, so any recorded value is known within about 6%. Values are
+ * meant to be microseconds and are capped at about 2^40 (12 days).
+ *
+ * @author Jan.Wang
+ *
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 16;
+    private static final int MAX_EXPONENT = 36;
+    private static final int BUCKETS = (MAX_EXPONENT + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value){
+        if(value < 0)
+            value = 0;
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        for(long m = max.get(); value > m && !max.compareAndSet(m, value); m = max.get());
+    }
+
+    public long getCount(){
+        return count.get();
+    }
+
+    public long getMax(){
+        return max.get();
+    }
+
+    public double getMean(){
+        long c = count.get();
+        return 0 == c ? 0d : (double) sum.get() / c;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the highest value of the bucket holding the percentile, never above
+     * the maximum recorded
+     */
+    public long getValueAtPercentile(double percentile){
+        long total = count.get();
+        if(0 == total)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100d, percentile) / 100d));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += counts.get(i);
+            if(seen >= rank)
+                return Math.min(highestValue(i), max.get());
+        }
+        return max.get();
+    }
+
+    static int index(long value){
+        if(value < 2 * SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - 4;
+        if(exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        return (exponent + 1) * SUB_BUCKETS + (int) (value >>> exponent) - SUB_BUCKETS;
+    }
+
+    static long highestValue(int index){
+        if(index < 2 * SUB_BUCKETS)
+            return index;
+        int exponent = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << exponent;
+        return lowest + (1L << exponent) - 1;
+    }
+
+}
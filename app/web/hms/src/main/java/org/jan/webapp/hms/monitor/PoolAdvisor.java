@@ -0,0 +1,188 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.monitor;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.jan.webapp.hms.model.page.PoolAdvice;
+
+import com.alibaba.druid.pool.DruidDataSource;
+
+/**
+ * Samples the load of the Druid pool every second and recommends its sizes.
+ * <p>
+ * Over a sliding window it tracks the demand, the connections in use plus the
+ * threads waiting for one, and the borrow rate. By Little's law the mean number of
+ * connections in use L equals the borrow rate lambda times the mean hold time W,
+ * both reported; <code>maxActive</code> is recommended at the 95th percentile of the
+ * demand plus a headroom, <code>minIdle</code> at the mean use.
+ * <p>
+ * With auto-sizing on, <code>maxActive</code> is set to the recommendation at the end
+ * of each window, within <code>[lowerBound, upperBound]</code>. It grows at once when
+ * threads had to wait and shrinks by at most a quarter per window. The upper bound
+ * never exceeds the <code>maxActive</code> the pool was initialized with, which sizes
+ * its connection array.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class PoolAdvisor {
+
+    private static final Logger logger = Logger.getLogger(PoolAdvisor.class);
+
+    private final DruidDataSource dataSource;
+    private final boolean autoSize;
+    private final int lowerBound;
+    private final int upperBound;
+    private final double headroom;
+
+    // window of samples, only written by the sampler thread
+    private final int[] demand;
+    private final int[] active;
+    private final long[] borrows;
+    private int samples;
+    private int index;
+    private long lastConnectCount = -1L;
+
+    private volatile PoolAdvice advice = new PoolAdvice();
+    private ScheduledExecutorService sampler;
+
+    /**
+     * @param dataSource
+     * @param autoSize whether to apply the recommended <code>maxActive</code>
+     * @param lowerBound lowest <code>maxActive</code> applied
+     * @param upperBound highest <code>maxActive</code> applied
+     * @param windowSeconds number of one second samples the advice is based on
+     * @param headroom factor applied to the demand, e.g. 1.2
+     */
+    public PoolAdvisor(DruidDataSource dataSource, boolean autoSize, int lowerBound, int upperBound, int windowSeconds, double headroom){
+        this.dataSource = dataSource;
+        this.autoSize = autoSize;
+        this.lowerBound = Math.max(1, lowerBound);
+        this.upperBound = Math.max(this.lowerBound, Math.min(upperBound, dataSource.getMaxActive()));
+        this.headroom = Math.max(1d, headroom);
+        this.demand = new int[Math.max(2, windowSeconds)];
+        this.active = new int[demand.length];
+        this.borrows = new long[demand.length];
+    }
+
+    public synchronized void start(){
+        if(null != sampler)
+            return;
+        sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "hms-pool-advisor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        sampler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sample();
+                } catch (Throwable e) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop(){
+        if(null != sampler){
+            sampler.shutdownNow();
+            sampler = null;
+        }
+    }
+
+    /**
+     * @return the advice computed from the last sample
+     */
+    public PoolAdvice getAdvice(){
+        return advice;
+    }
+
+    void sample(){
+        int activeCount = dataSource.getActiveCount();
+        int waitThreadCount = dataSource.getWaitThreadCount();
+        long connectCount = dataSource.getConnectCount();
+        demand[index] = activeCount + waitThreadCount;
+        active[index] = activeCount;
+        borrows[index] = lastConnectCount < 0 ? 0 : Math.max(0, connectCount - lastConnectCount);
+        lastConnectCount = connectCount;
+        index = (index + 1) % demand.length;
+        if(samples < demand.length)
+            samples++;
+        PoolAdvice a = advise(activeCount, waitThreadCount);
+        advice = a;
+        if(autoSize && 0 == index)
+            resize(a);
+    }
+
+    private PoolAdvice advise(int activeCount, int waitThreadCount){
+        int[] sorted = Arrays.copyOf(demand, samples);
+        Arrays.sort(sorted);
+        long activeSum = 0, borrowSum = 0;
+        int saturated = 0;
+        for(int i = 0; i < samples; i++){
+            activeSum += active[i];
+            borrowSum += borrows[i];
+            if(demand[i] > active[i])
+                saturated++;
+        }
+        PoolAdvice a = new PoolAdvice();
+        a.setActiveCount(activeCount);
+        a.setWaitThreadCount(waitThreadCount);
+        a.setMaxActive(dataSource.getMaxActive());
+        a.setMinIdle(dataSource.getMinIdle());
+        a.setSamples(samples);
+        a.setAutoSize(autoSize);
+        double meanActive = (double) activeSum / samples;
+        double lambda = (double) borrowSum / samples;
+        a.setMeanActive(meanActive);
+        a.setBorrowsPerSecond(lambda);
+        a.setMeanHoldMillis(lambda > 0 ? meanActive / lambda * 1000 : 0);
+        a.setSaturatedRatio((double) saturated / samples);
+        a.setPeakDemand(sorted[samples - 1]);
+        a.setP95Demand(sorted[Math.min(samples - 1, (int) Math.ceil(samples * 0.95) - 1)]);
+        a.setRecommendedMaxActive(clamp((int) Math.ceil(a.getP95Demand() * headroom)));
+        a.setRecommendedMinIdle(Math.min(a.getRecommendedMaxActive(), (int) Math.ceil(meanActive)));
+        return a;
+    }
+
+    private void resize(PoolAdvice a){
+        int current = dataSource.getMaxActive();
+        int target = a.getRecommendedMaxActive();
+        if(target < current && a.getSaturatedRatio() == 0)
+            target = Math.max(target, current - Math.max(1, current / 4));
+        else if(target < current)
+            return;
+        if(target == current)
+            return;
+        if(dataSource.getMinIdle() > target)
+            dataSource.setMinIdle(target);
+        dataSource.setMaxActive(target);
+        logger.info(String.format("Pool maxActive %d -> %d (p95 demand %d, %.1f borrows/s, mean hold %.1f ms)",
+                current, target, a.getP95Demand(), a.getBorrowsPerSecond(), a.getMeanHoldMillis()));
+    }
+
+    private int clamp(int size){
+        return Math.max(lowerBound, Math.min(upperBound, size));
+    }
+
+}
@@ -0,0 +1,246 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.monitor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.jan.webapp.hms.model.page.QueryStat;
+import org.jan.webapp.hms.model.page.QueryStat.SlowQuery;
+
+/**
+ * Latency histograms of the HQL statements run through
+ * {@link org.jan.webapp.hms.dao.impl.BaseDaoImpl}, keyed by the normalized statement,
+ * literals replaced by <code>?</code>, and the service method issuing it.
+ * <p>
+ * The service method is the innermost one entered through {@link #enterService(Object, Method)},
+ * so that the fast executions cost no stack walk; the stack is only captured for
+ * executions slower than the threshold, which are logged and the most recent ones
+ * kept per statement. Their parameters are recorded by type only, never by value,
+ * since they include credentials.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class QueryStatistics {
+
+    private static final Logger logger = Logger.getLogger(QueryStatistics.class);
+
+    private static final String UNKNOWN_CALLER = "unknown";
+    private static final int SLOW_SAMPLES = 8;
+    private static final int STACK_DEPTH = 12;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.:])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final ThreadLocal<String> currentService = new ThreadLocal<String>();
+    private static final ConcurrentMap<Method, String> serviceNames = new ConcurrentHashMap<Method, String>();
+
+    private final long slowThresholdMicros;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final ConcurrentMap<String, String> normalized = new ConcurrentHashMap<String, String>();
+
+    /**
+     * @param slowThresholdMillis executions taking longer are sampled
+     */
+    public QueryStatistics(long slowThresholdMillis){
+        this.slowThresholdMicros = slowThresholdMillis * 1000;
+    }
+
+    /**
+     * Marks the current thread as running a service method, until {@link #exitService(String)}.
+     *
+     * @param target the service
+     * @param method the method called
+     * @return the service method entered before, to restore on exit
+     */
+    public static String enterService(Object target, Method method){
+        String name = serviceNames.get(method);
+        if(null == name){
+            name = target.getClass().getName() + '.' + method.getName();
+            serviceNames.putIfAbsent(method, name);
+        }
+        String previous = currentService.get();
+        currentService.set(name);
+        return previous;
+    }
+
+    /**
+     * @param previous what {@link #enterService(Object, Method)} returned
+     */
+    public static void exitService(String previous){
+        if(null == previous)
+            currentService.remove();
+        else
+            currentService.set(previous);
+    }
+
+    /**
+     * Records one execution.
+     *
+     * @param hql the statement
+     * @param params its parameters, only their types are kept, for slow executions
+     * @param nanos duration
+     */
+    public void record(String hql, Object params, long nanos){
+        String caller = currentService.get();
+        if(null == caller)
+            caller = UNKNOWN_CALLER;
+        String statement = normalize(hql);
+        String key = caller + '|' + statement;
+        Entry entry = entries.get(key);
+        if(null == entry){
+            entry = new Entry(statement, caller);
+            Entry existing = entries.putIfAbsent(key, entry);
+            if(null != existing)
+                entry = existing;
+        }
+        long micros = nanos / 1000;
+        entry.histogram.record(micros);
+        if(micros >= slowThresholdMicros){
+            entry.slowCount.incrementAndGet();
+            SlowQuery slow = new SlowQuery(System.currentTimeMillis(), micros, render(params), render(new Throwable().getStackTrace()));
+            entry.slowQueries.set((entry.next.getAndIncrement() & Integer.MAX_VALUE) % SLOW_SAMPLES, slow);
+            logger.warn(String.format("Slow query (%d ms) from %s: %s %s", micros / 1000, caller, statement, slow.getParams()));
+        }
+    }
+
+    /**
+     * @return the statistics of every statement, the highest p99 first
+     */
+    public List<QueryStat> getStats(){
+        List<QueryStat> stats = new ArrayList<QueryStat>();
+        for(Entry entry : entries.values())
+            stats.add(entry.snapshot());
+        Collections.sort(stats, new Comparator<QueryStat>() {
+            @Override
+            public int compare(QueryStat o1, QueryStat o2) {
+                return o1.getP99() < o2.getP99() ? 1 : (o1.getP99() == o2.getP99() ? 0 : -1);
+            }
+        });
+        return stats;
+    }
+
+    public void reset(){
+        entries.clear();
+    }
+
+    String normalize(String hql){
+        String n = normalized.get(hql);
+        if(null == n){
+            n = STRING_LITERAL.matcher(hql).replaceAll("?");
+            n = NUMBER_LITERAL.matcher(n).replaceAll("?");
+            n = WHITESPACE.matcher(n).replaceAll(" ").trim();
+            // statements with inlined values are all different, keep the cache bounded
+            if(n.equals(hql) || normalized.size() < 1024)
+                normalized.put(hql, n);
+        }
+        return n;
+    }
+
+    /*
+     * The types of the parameters, their values may be credentials.
+     */
+    private static String render(Object params){
+        if(null == params)
+            return "";
+        StringBuilder sb = new StringBuilder();
+        if(params instanceof Map){
+            sb.append('{');
+            for(Iterator<? extends Map.Entry<?, ?>> it = ((Map<?, ?>) params).entrySet().iterator(); it.hasNext();){
+                Map.Entry<?, ?> param = it.next();
+                sb.append(param.getKey()).append('=').append(typeOf(param.getValue()));
+                if(it.hasNext())
+                    sb.append(", ");
+            }
+            return sb.append('}').toString();
+        }
+        Collection<?> values = params instanceof Object[] ? Arrays.asList((Object[]) params)
+                : params instanceof Collection ? (Collection<?>) params : Collections.singletonList(params);
+        sb.append('[');
+        for(Iterator<?> it = values.iterator(); it.hasNext();){
+            sb.append(typeOf(it.next()));
+            if(it.hasNext())
+                sb.append(", ");
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String typeOf(Object value){
+        return null == value ? "null" : value.getClass().getSimpleName();
+    }
+
+    private static String render(StackTraceElement[] stack){
+        StringBuilder sb = new StringBuilder();
+        for(int i = 1, n = 0; i < stack.length && n < STACK_DEPTH; i++){
+            String className = stack[i].getClassName();
+            if(className.startsWith("org.jan.")){
+                sb.append(stack[i]).append('\n');
+                n++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class Entry {
+
+        final String hql;
+        final String caller;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final AtomicLong slowCount = new AtomicLong();
+        final AtomicReferenceArray<SlowQuery> slowQueries = new AtomicReferenceArray<SlowQuery>(SLOW_SAMPLES);
+        final AtomicInteger next = new AtomicInteger();
+
+        Entry(String hql, String caller){
+            this.hql = hql;
+            this.caller = caller;
+        }
+
+        QueryStat snapshot(){
+            QueryStat stat = new QueryStat();
+            stat.setHql(hql);
+            stat.setCaller(caller);
+            stat.setCount(histogram.getCount());
+            stat.setMean(histogram.getMean());
+            stat.setP50(histogram.getValueAtPercentile(50));
+            stat.setP90(histogram.getValueAtPercentile(90));
+            stat.setP99(histogram.getValueAtPercentile(99));
+            stat.setMax(histogram.getMax());
+            stat.setSlowCount(slowCount.get());
+            List<SlowQuery> samples = new ArrayList<SlowQuery>();
+            for(int i = 0; i < SLOW_SAMPLES; i++){
+                SlowQuery slow = slowQueries.get(i);
+                if(null != slow)
+                    samples.add(slow);
+            }
+            stat.setSlowQueries(samples);
+            return stat;
+        }
+
+    }
+
+}
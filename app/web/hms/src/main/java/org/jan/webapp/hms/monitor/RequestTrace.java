@@ -0,0 +1,180 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jan.webapp.hms.model.page.Trace;
+import org.jan.webapp.hms.model.page.Trace.Span;
+
+/**
+ * Timings of the request handled by the current thread, from
+ * {@link #begin(String, String)} to {@link #end()}.
+ * <p>
+ * Phases are accumulated in plain arrays, the trace being confined to its thread,
+ * and recording outside of a trace is a no-op. Service calls made from another
+ * service are listed but only the outermost call counts in the service phase.
+ *
+ * @author Jan.Wang
+ *
+ */
+public final class RequestTrace {
+
+    /**
+     * The phases of a request, in the order they are listed.
+     */
+    public enum Phase {
+        INTERCEPTORS("interceptors"), ACTION("action"), RESULT("result"), SERVICE("service"), DB("db"), JSON("json");
+
+        private final String metric;
+
+        private Phase(String metric){
+            this.metric = metric;
+        }
+
+        /**
+         * @return the name of the phase in the <code>Server-Timing</code> header
+         */
+        public String getMetric(){
+            return metric;
+        }
+    }
+
+    private static final int MAX_SERVICE_SPANS = 32;
+
+    private static final ThreadLocal<RequestTrace> current = new ThreadLocal<RequestTrace>();
+
+    private final String method;
+    private final String uri;
+    private final long time = System.currentTimeMillis();
+    private final long start = System.nanoTime();
+    private final long[] durations = new long[Phase.values().length];
+    private final int[] counts = new int[Phase.values().length];
+    private final List<Span> services = new ArrayList<Span>();
+    private int serviceDepth;
+    private long chainStart;
+
+    private RequestTrace(String method, String uri){
+        this.method = method;
+        this.uri = uri;
+    }
+
+    /**
+     * Starts tracing the request on the current thread.
+     */
+    public static RequestTrace begin(String method, String uri){
+        RequestTrace trace = new RequestTrace(method, uri);
+        current.set(trace);
+        return trace;
+    }
+
+    /**
+     * @return the trace of the current thread, or null if it is not tracing
+     */
+    public static RequestTrace current(){
+        return current.get();
+    }
+
+    /**
+     * Stops tracing on the current thread.
+     *
+     * @return the trace, or null if tracing was not started
+     */
+    public static RequestTrace end(){
+        RequestTrace trace = current.get();
+        current.remove();
+        return trace;
+    }
+
+    /**
+     * Adds time to a phase of the current trace, if any.
+     */
+    public static void record(Phase phase, long nanos){
+        RequestTrace trace = current.get();
+        if(null != trace)
+            trace.add(phase, nanos);
+    }
+
+    public void add(Phase phase, long nanos){
+        durations[phase.ordinal()] += nanos;
+        counts[phase.ordinal()]++;
+    }
+
+    /**
+     * Marks the entry in the Struts interceptor stack.
+     */
+    public void enterChain(long nanoTime){
+        chainStart = nanoTime;
+    }
+
+    /**
+     * @return when the interceptor stack was entered, 0 if it was not
+     */
+    public long getChainStart(){
+        return chainStart;
+    }
+
+    public void enterService(){
+        serviceDepth++;
+    }
+
+    public void exitService(String name, long nanos){
+        if(0 == --serviceDepth)
+            add(Phase.SERVICE, nanos);
+        if(services.size() < MAX_SERVICE_SPANS)
+            services.add(new Span(name, TimeUnit.NANOSECONDS.toMicros(nanos), 1));
+    }
+
+    /**
+     * @return the value of a <code>Server-Timing</code> header with the phases
+     * recorded so far and the time elapsed since the trace began
+     */
+    public String toServerTiming(){
+        StringBuilder sb = new StringBuilder(128);
+        for(Phase phase : Phase.values()){
+            if(0 == counts[phase.ordinal()])
+                continue;
+            appendMetric(sb, phase.getMetric(), durations[phase.ordinal()]);
+            sb.append(", ");
+        }
+        appendMetric(sb, "total", System.nanoTime() - start);
+        return sb.toString();
+    }
+
+    private static void appendMetric(StringBuilder sb, String name, long nanos){
+        // milliseconds with microsecond precision
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        sb.append(name).append(";dur=").append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if(fraction < 100)
+            sb.append('0');
+        if(fraction < 10)
+            sb.append('0');
+        sb.append(fraction);
+    }
+
+    /**
+     * @return the finished trace, its total time measured now
+     */
+    public Trace toTrace(){
+        long total = System.nanoTime() - start;
+        List<Span> phases = new ArrayList<Span>(durations.length);
+        for(Phase phase : Phase.values()){
+            if(0 != counts[phase.ordinal()])
+                phases.add(new Span(phase.getMetric(), TimeUnit.NANOSECONDS.toMicros(durations[phase.ordinal()]), counts[phase.ordinal()]));
+        }
+        return new Trace(time, method, uri, TimeUnit.NANOSECONDS.toMicros(total), phases, services);
+    }
+
+}
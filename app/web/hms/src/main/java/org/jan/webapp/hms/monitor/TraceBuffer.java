@@ -0,0 +1,80 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jan.webapp.hms.model.page.Trace;
+
+/**
+ * The most recent request traces, in a ring overwritten without locking: a
+ * writer claims a slot with one atomic increment and publishes its trace with a
+ * volatile write, so tracing never makes requests wait on each other.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class TraceBuffer {
+
+    private static final int CAPACITY = 1024;
+
+    private static TraceBuffer buffer = new TraceBuffer(CAPACITY);
+
+    private final AtomicReferenceArray<Trace> traces;
+    private final AtomicLong sequence = new AtomicLong();
+    private final int mask;
+
+    TraceBuffer(int capacity){
+        if(Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+        traces = new AtomicReferenceArray<Trace>(capacity);
+        mask = capacity - 1;
+    }
+
+    public static TraceBuffer getInstance(){
+        return buffer;
+    }
+
+    public void add(Trace trace){
+        traces.set((int) (sequence.getAndIncrement() & mask), trace);
+    }
+
+    /**
+     * @return up to <code>n</code> of the buffered traces, the slowest first
+     */
+    public List<Trace> getSlowest(int n){
+        List<Trace> result = new ArrayList<Trace>(traces.length());
+        for(int i = 0; i < traces.length(); i++){
+            Trace trace = traces.get(i);
+            if(null != trace)
+                result.add(trace);
+        }
+        Collections.sort(result, new Comparator<Trace>() {
+            @Override
+            public int compare(Trace o1, Trace o2) {
+                return o1.getMicros() < o2.getMicros() ? 1 : (o1.getMicros() == o2.getMicros() ? 0 : -1);
+            }
+        });
+        return n < result.size() ? new ArrayList<Trace>(result.subList(0, Math.max(0, n))) : result;
+    }
+
+    public void clear(){
+        for(int i = 0; i < traces.length(); i++)
+            traces.set(i, null);
+    }
+
+}
@@ -0,0 +1,46 @@
+package org.jan.webapp.hms.service;
+
+/**
+ * @author Jan.Wang
+ *
+ */
+public interface ModuleService extends BaseService {
+
+    /**
+     * Reloads the module closure from the database with a single query.
+     *
+     * @return the number of modules loaded
+     * @see org.jan.webapp.hms.cache.ModuleClosureCache
+     */
+    int loadModuleClosure();
+
+    /**
+     * Adds a module under the specified parent (null for a root).
+     *
+     * @return false if the module number is taken or the parent does not exist
+     */
+    boolean addModule(String moduleNo, String name, String parentNo);
+
+    /**
+     * Moves a module with its subtree under another parent (null for a root).
+     *
+     * @return false if either module does not exist or the parent lies in the
+     * subtree of the module
+     */
+    boolean moveModule(String moduleNo, String parentNo);
+
+    /**
+     * Removes a module with its subtree.
+     */
+    boolean removeModule(String moduleNo);
+
+    /**
+     * Offers the behavior on the module.
+     *
+     * @return false if the module or behavior does not exist or is already linked
+     */
+    boolean addBehavior(String moduleNo, String behaviorNo);
+
+    boolean removeBehavior(String moduleNo, String behaviorNo);
+
+}
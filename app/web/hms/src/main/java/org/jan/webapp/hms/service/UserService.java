@@ -28,6 +28,8 @@ public interface UserService extends BaseService {
 
     List<User> getUsersByCondition(User user);
 
+    DataGrid<User> getUsers(User user);
+
     User login(String userName, String password);
 
     User getUserByUserName(String userName);
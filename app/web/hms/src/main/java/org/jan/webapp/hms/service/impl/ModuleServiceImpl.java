@@ -0,0 +1,225 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.service.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.jan.webapp.hms.cache.ModuleClosureCache;
+import org.jan.webapp.hms.dao.BaseDao;
+import org.jan.webapp.hms.model.entity.BehaviorEntity;
+import org.jan.webapp.hms.model.entity.ModuleBehaviorEntity;
+import org.jan.webapp.hms.model.entity.ModuleEntity;
+import org.jan.webapp.hms.service.ModuleService;
+import org.jan.webapp.hms.util.IDGenerator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The mutations update the {@link ModuleClosureCache} once their transaction
+ * commits, so a rolled back change never reaches it.
+ *
+ * @author Jan.Wang
+ *
+ */
+@Service
+public class ModuleServiceImpl implements ModuleService {
+
+    private static final String HQL_MODULE_CLOSURE = "select m.moduleNo, p.moduleNo, b.behaviorNo FROM ModuleEntity m"
+            + " left join m.parent p left join m.moduleBehaviors mb left join mb.behavior b";
+
+    // projection rows of {moduleNo, parentModuleNo, behaviorNo}
+    @Inject
+    private BaseDao<Object[]> closureDao;
+    @Inject
+    private BaseDao<ModuleEntity> moduleDao;
+    @Inject
+    private BaseDao<BehaviorEntity> behaviorDao;
+    @Inject
+    private BaseDao<ModuleBehaviorEntity> moduleBehaviorDao;
+
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.service.ModuleService#loadModuleClosure()
+     */
+    @Override
+    @Transactional(readOnly=true)
+    public int loadModuleClosure() {
+        List<Object[]> rows = closureDao.find(HQL_MODULE_CLOSURE);
+        ModuleClosureCache cache = ModuleClosureCache.getInstance();
+        cache.rebuild(rows);
+        return cache.size();
+    }
+
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.service.ModuleService#addModule(java.lang.String, java.lang.String, java.lang.String)
+     */
+    @Override
+    @Transactional
+    public boolean addModule(final String moduleNo, String name, final String parentNo) {
+        if(null != getModule(moduleNo))
+            return false;
+        ModuleEntity parent = null;
+        if(null != parentNo){
+            parent = getModule(parentNo);
+            if(null == parent)
+                return false;
+        }
+        ModuleEntity moduleEntity = new ModuleEntity();
+        moduleEntity.setId(IDGenerator.create());
+        moduleEntity.setModuleNo(moduleNo);
+        moduleEntity.setName(name);
+        moduleEntity.setParent(parent);
+        moduleDao.save(moduleEntity);
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                ModuleClosureCache.getInstance().moduleAdded(moduleNo, parentNo);
+            }
+        });
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.service.ModuleService#moveModule(java.lang.String, java.lang.String)
+     */
+    @Override
+    @Transactional
+    public boolean moveModule(final String moduleNo, final String parentNo) {
+        ModuleEntity moduleEntity = getModule(moduleNo);
+        if(null == moduleEntity)
+            return false;
+        ModuleEntity parent = null;
+        if(null != parentNo){
+            parent = getModule(parentNo);
+            if(null == parent || isInSubtree(parent, moduleEntity))
+                return false;
+        }
+        moduleEntity.setParent(parent);
+        moduleDao.update(moduleEntity);
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                ModuleClosureCache.getInstance().moduleMoved(moduleNo, parentNo);
+            }
+        });
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.service.ModuleService#removeModule(java.lang.String)
+     */
+    @Override
+    @Transactional
+    public boolean removeModule(final String moduleNo) {
+        ModuleEntity moduleEntity = getModule(moduleNo);
+        if(null == moduleEntity)
+            return false;
+        // children and module behaviors go with it by cascade
+        moduleDao.delete(moduleEntity);
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                ModuleClosureCache.getInstance().moduleRemoved(moduleNo);
+            }
+        });
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.service.ModuleService#addBehavior(java.lang.String, java.lang.String)
+     */
+    @Override
+    @Transactional
+    public boolean addBehavior(final String moduleNo, final String behaviorNo) {
+        ModuleEntity moduleEntity = getModule(moduleNo);
+        BehaviorEntity behaviorEntity = behaviorDao.get("FROM BehaviorEntity b where b.behaviorNo = ?", new String[]{behaviorNo});
+        if(null == moduleEntity || null == behaviorEntity || null != getModuleBehavior(moduleNo, behaviorNo))
+            return false;
+        ModuleBehaviorEntity moduleBehaviorEntity = new ModuleBehaviorEntity();
+        moduleBehaviorEntity.setId(IDGenerator.create());
+        moduleBehaviorEntity.setModule(moduleEntity);
+        moduleBehaviorEntity.setBehavior(behaviorEntity);
+        moduleBehaviorDao.save(moduleBehaviorEntity);
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                ModuleClosureCache.getInstance().behaviorAdded(moduleNo, behaviorNo);
+            }
+        });
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.service.ModuleService#removeBehavior(java.lang.String, java.lang.String)
+     */
+    @Override
+    @Transactional
+    public boolean removeBehavior(final String moduleNo, final String behaviorNo) {
+        ModuleBehaviorEntity moduleBehaviorEntity = getModuleBehavior(moduleNo, behaviorNo);
+        if(null == moduleBehaviorEntity)
+            return false;
+        moduleBehaviorDao.delete(moduleBehaviorEntity);
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                ModuleClosureCache.getInstance().behaviorRemoved(moduleNo, behaviorNo);
+            }
+        });
+        return true;
+    }
+
+    private ModuleEntity getModule(String moduleNo) {
+        return moduleDao.get("FROM ModuleEntity m where m.moduleNo = ?", new String[]{moduleNo});
+    }
+
+    private ModuleBehaviorEntity getModuleBehavior(String moduleNo, String behaviorNo) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("moduleNo", moduleNo);
+        params.put("behaviorNo", behaviorNo);
+        return moduleBehaviorDao.get("FROM ModuleBehaviorEntity mb where mb.module.moduleNo = :moduleNo"
+                + " and mb.behavior.behaviorNo = :behaviorNo", params);
+    }
+
+    /*
+     * Walks up from the module, the database being the authority while the cache
+     * catches up with other transactions.
+     */
+    private static boolean isInSubtree(ModuleEntity moduleEntity, ModuleEntity root) {
+        for(ModuleEntity m = moduleEntity; null != m; m = m.getParent()){
+            if(m.getId().equals(root.getId()))
+                return true;
+        }
+        return false;
+    }
+
+    /*
+     * Runs the task after the current transaction commits, or right away outside one.
+     */
+    private static void afterCommit(final Runnable task) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()){
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+}
@@ -20,6 +20,7 @@ import javax.inject.Inject;
 import org.jan.webapp.hms.cache.OnlineCache;
 import org.jan.webapp.hms.converter.impl.UserConverter;
 import org.jan.webapp.hms.dao.BaseDao;
+import org.jan.webapp.hms.dao.FetchPlan;
 import org.jan.webapp.hms.model.entity.RoleEntity;
 import org.jan.webapp.hms.model.entity.UserEntity;
 import org.jan.webapp.hms.model.page.DataGrid;
@@ -38,6 +39,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class UserServiceImpl implements UserService {
 
+    private static final int DEFAULT_ROWS = 10;
+
     @Inject
     private BaseDao<UserEntity> userDao;
     @Inject
@@ -68,8 +71,9 @@ public class UserServiceImpl implements UserService {
      * @see org.jan.webapp.hms.service.UserService#getUserById(java.lang.String)
      */
     @Override
+    @Transactional(readOnly=true)
     public User getUserById(String id) {
-        UserEntity userEntity = userDao.get(UserEntity.class, id);
+        UserEntity userEntity = userDao.get(UserEntity.class, id, FetchPlan.USER_WITH_ROLE);
         return userConverter.inverse(userEntity);
     }
 
@@ -77,11 +81,12 @@ public class UserServiceImpl implements UserService {
      * @see org.jan.webapp.hms.service.UserService#getUserByRoleId(java.lang.String)
      */
     @Override
+    @Transactional(readOnly=true)
     public List<User> getUsersByRoleId(String roleId) {
-        List<UserEntity> userEntitys = userDao.find("FROM UserEntity u where u.role.id = ?", new String[]{roleId});
+        RoleEntity roleEntity = roleDao.get(RoleEntity.class, roleId, FetchPlan.ROLE_WITH_USERS);
         List<User> users = new ArrayList<User>();
-        if(null != userEntitys){
-            for(UserEntity userEntity : userEntitys)
+        if(null != roleEntity){
+            for(UserEntity userEntity : roleEntity.getUsers())
                 users.add(userConverter.inverse(userEntity));
         }
         return users;
@@ -91,6 +96,7 @@ public class UserServiceImpl implements UserService {
      * @see org.jan.webapp.hms.service.UserService#modifyPassword(org.jan.webapp.hms.model.page.User)
      */
     @Override
+    @Transactional
     public boolean modifyPassword(User user) {
         UserEntity userEntity = userDao.get(UserEntity.class, user.getId());
         if(null != userEntity){
@@ -104,6 +110,7 @@ public class UserServiceImpl implements UserService {
      * @see org.jan.webapp.hms.service.UserService#modifyUser(org.jan.webapp.hms.model.page.User)
      */
     @Override
+    @Transactional
     public User modifyUser(User user) {
         user.setLastUpdateDt(new Date());
         UserEntity userEntity = userConverter.convert(user);
@@ -122,6 +129,7 @@ public class UserServiceImpl implements UserService {
      * @see org.jan.webapp.hms.service.UserService#removeUser(java.lang.String)
      */
     @Override
+    @Transactional
     public boolean removeUser(String id) {
         UserEntity userEntity = userDao.get(UserEntity.class, id);
         if(null != userEntity){
@@ -135,8 +143,9 @@ public class UserServiceImpl implements UserService {
      * @see org.jan.webapp.hms.service.UserService#getAllUsers()
      */
     @Override
+    @Transactional(readOnly=true)
     public List<User> getAllUsers() {
-        List<UserEntity> userEntitys = userDao.find("FROM UserEntity u");
+        List<UserEntity> userEntitys = userDao.find("FROM UserEntity u", null, FetchPlan.USER_WITH_ROLE);
         List<User> users = new ArrayList<User>();
         if(null != userEntitys){
             for(UserEntity userEntity : userEntitys)
@@ -154,6 +163,23 @@ public class UserServiceImpl implements UserService {
         return null;
     }
 
+    /* (non-Javadoc)
+     * @see org.jan.webapp.hms.service.UserService#getUsers(org.jan.webapp.hms.model.page.User)
+     */
+    @Override
+    @Transactional(readOnly=true)
+    public DataGrid<User> getUsers(User user) {
+        int page = user.getPage() > 0 ? user.getPage() : 1;
+        int rows = user.getRows() > 0 ? user.getRows() : DEFAULT_ROWS;
+        List<UserEntity> userEntitys = userDao.find("FROM UserEntity u ORDER BY u.userName", null, page, rows, FetchPlan.USER_WITH_ROLE);
+        List<User> users = new ArrayList<User>();
+        if(null != userEntitys){
+            for(UserEntity userEntity : userEntitys)
+                users.add(userConverter.inverse(userEntity));
+        }
+        return new DataGrid<User>(users, userDao.count("SELECT count(*) FROM UserEntity u"));
+    }
+
     /* (non-Javadoc)
      * @see org.jan.webapp.hms.service.UserService#login(java.lang.String, java.lang.String)
      */
@@ -0,0 +1,177 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.servlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jan.common.utils.io.IOUtils;
+import org.jan.webapp.hms.asset.AssetManifest;
+
+/**
+ * Serves the static resources of the web application.
+ * <p>
+ * Fingerprinted assets are cached by browsers for a year as <code>immutable</code>,
+ * other files for <code>maxAge</code> seconds (init parameter, one hour by default)
+ * with <code>Last-Modified</code> revalidation. The gzip version produced at build
+ * time is sent to clients accepting it, fingerprinted assets carrying an
+ * <code>ETag</code> per encoding, compared with <code>If-None-Match</code>.
+ * Files are copied to the response through a pooled direct buffer
+ * ({@link IOUtils#copyLarge(FileChannel, java.io.OutputStream)}); the servlet API
+ * offers no zero-copy path to the socket.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class AssetServlet extends HttpServlet {
+    private static final long serialVersionUID = -6025371864412036415L;
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final long DEFAULT_MAX_AGE = 3600L;
+
+    private String cacheRevalidate;
+
+    /* (non-Javadoc)
+     * @see javax.servlet.GenericServlet#init()
+     */
+    @Override
+    public void init() throws ServletException {
+        String value = getInitParameter("maxAge");
+        cacheRevalidate = String.format("public, max-age=%d", null == value ? DEFAULT_MAX_AGE : Long.parseLong(value.trim()));
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.http.HttpServlet#getLastModified(javax.servlet.http.HttpServletRequest)
+     */
+    @Override
+    protected long getLastModified(HttpServletRequest req) {
+        File file = resolve(pathOf(req));
+        return null == file ? -1L : file.lastModified() / 1000 * 1000;
+    }
+
+    /* (non-Javadoc)
+     * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        String path = pathOf(req);
+        File file = resolve(path);
+        if(null == file){
+            if(!sendResource(path, resp))
+                resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        boolean fingerprinted = AssetManifest.isFingerprinted(path);
+        String name = file.getName();
+        File gzip = new File(file.getPath() + ".gz");
+        boolean gzipped = false;
+        if(gzip.isFile()){
+            resp.setHeader("Vary", "Accept-Encoding");
+            String acceptEncoding = req.getHeader("Accept-Encoding");
+            if(null != acceptEncoding && acceptEncoding.contains("gzip")){
+                file = gzip;
+                gzipped = true;
+            }
+        }
+        resp.setHeader("Cache-Control", fingerprinted ? CACHE_IMMUTABLE : cacheRevalidate);
+        if(fingerprinted){
+            // the bodies differ, so do their tags
+            String etag = '"' + name + (gzipped ? "-gzip" : "") + '"';
+            resp.setHeader("ETag", etag);
+            if(matches(req.getHeader("If-None-Match"), etag)){
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        String contentType = getServletContext().getMimeType(name);
+        if(null != contentType)
+            resp.setContentType(contentType);
+        if(gzipped)
+            resp.setHeader("Content-Encoding", "gzip");
+        send(file, resp);
+    }
+
+    /*
+     * Whether an If-None-Match header lists the tag, weakly compared.
+     */
+    private static boolean matches(String ifNoneMatch, String etag){
+        if(null == ifNoneMatch)
+            return false;
+        for(String tag : ifNoneMatch.split(",")){
+            tag = tag.trim();
+            if(tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if("*".equals(tag) || etag.equals(tag))
+                return true;
+        }
+        return false;
+    }
+
+    private String pathOf(HttpServletRequest req){
+        String pathInfo = req.getPathInfo();
+        return null == pathInfo ? req.getServletPath() : req.getServletPath() + pathInfo;
+    }
+
+    /*
+     * Resolves the path to a file of the exploded web application.
+     */
+    private File resolve(String path){
+        if(path.contains(".."))
+            return null;
+        String realPath = getServletContext().getRealPath(path);
+        if(null == realPath)
+            return null;
+        File file = new File(realPath);
+        return file.isFile() ? file : null;
+    }
+
+    private void send(File file, HttpServletResponse resp) throws IOException {
+        long size = file.length();
+        resp.setHeader("Content-Length", String.valueOf(size));
+        FileInputStream in = new FileInputStream(file);
+        try {
+            IOUtils.copyLarge(in.getChannel(), resp.getOutputStream());
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /*
+     * Fallback for web applications deployed as packed archives.
+     */
+    private boolean sendResource(String path, HttpServletResponse resp) throws IOException {
+        if(path.contains(".."))
+            return false;
+        InputStream in = getServletContext().getResourceAsStream(path);
+        if(null == in)
+            return false;
+        try {
+            String contentType = getServletContext().getMimeType(path);
+            if(null != contentType)
+                resp.setContentType(contentType);
+            resp.setHeader("Cache-Control", AssetManifest.isFingerprinted(path) ? CACHE_IMMUTABLE : cacheRevalidate);
+            IOUtils.copy(in, resp.getOutputStream());
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,57 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.servlet;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.jan.webapp.hms.startup.StartupOrchestrator;
+import org.jan.webapp.hms.util.Constants;
+
+import com.alibaba.fastjson.JSON;
+
+/**
+ * Readiness probe: answers 200 once every critical startup stage succeeded and 503
+ * before that, with the state and timing of each stage as JSON.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class ReadinessServlet extends HttpServlet {
+    private static final long serialVersionUID = 3920754761358861205L;
+
+    /* (non-Javadoc)
+     * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse)
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        StartupOrchestrator orchestrator = (StartupOrchestrator) getServletContext().getAttribute(Constants.CONTEXT_NAME_STARTUP);
+        boolean ready = null != orchestrator && orchestrator.isReady();
+        Map<String, Object> status = new LinkedHashMap<String, Object>();
+        status.put("ready", ready);
+        if(null != orchestrator){
+            status.put("elapsedMillis", orchestrator.getElapsedMillis());
+            status.put("stages", orchestrator.getStages());
+        }
+        resp.setStatus(ready ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        resp.setHeader("Cache-Control", "no-store");
+        resp.setContentType("application/json;charset=utf-8");
+        resp.getWriter().write(JSON.toJSONString(status));
+    }
+
+}
@@ -0,0 +1,54 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.session;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jan.webapp.hms.model.page.SessionInfo;
+
+/**
+ * {@link SessionStore} backed by a concurrent map on the heap.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class HeapSessionStore implements SessionStore {
+
+    private final ConcurrentMap<String, SessionInfo> sessions = new ConcurrentHashMap<String, SessionInfo>();
+
+    @Override
+    public void save(String sessionId, SessionInfo sessionInfo) {
+        sessions.put(sessionId, sessionInfo);
+    }
+
+    @Override
+    public SessionInfo load(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        sessions.clear();
+    }
+
+}
@@ -0,0 +1,314 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.session;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+import org.jan.webapp.hms.exception.AppException;
+import org.jan.webapp.hms.model.page.SessionInfo;
+
+/**
+ * {@link SessionStore} keeping the sessions off the heap, in a memory-mapped file.
+ * <p>
+ * The file is an open addressing hash table of fixed-width slots, probed linearly
+ * from the hash of the session id:
+ * <pre>
+ * offset  size  field
+ *      0     1  state: free or used
+ *      1     4  hash of the session id
+ *      5    65  session id  (length byte + UTF-8 bytes, length 255 = null)
+ *     70    37  user id
+ *    107    91  login name
+ *    198    46  ip
+ *    244    12  padding to {@link #SLOT_SIZE}
+ * </pre>
+ * The heap only holds the buffer itself, whatever the number of sessions, so the
+ * store does not add to the old generation or to the work of the collector.
+ * Entries are decoded into a new {@link SessionInfo} on every {@link #load(String)}.
+ * Removals shift the following entries of the probe sequence back instead of leaving
+ * tombstones, so lookups of missing ids stop at the end of their cluster however many
+ * sessions came and went. The capacity is fixed, saving more than three quarters of it
+ * fails with an {@link AppException}. Login names and ips over their field are truncated.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class MappedSessionStore implements SessionStore {
+
+    private static final Logger logger = Logger.getLogger(MappedSessionStore.class);
+
+    public static final int SLOT_SIZE = 256;
+
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+
+    private static final int OFFSET_HASH = 1;
+    private static final int OFFSET_SESSION_ID = 5;
+    private static final int OFFSET_USER_ID = 70;
+    private static final int OFFSET_LOGIN_NAME = 107;
+    private static final int OFFSET_IP = 198;
+
+    private static final int WIDTH_SESSION_ID = 64;
+    private static final int WIDTH_USER_ID = 36;
+    private static final int WIDTH_LOGIN_NAME = 90;
+    private static final int WIDTH_IP = 45;
+
+    private static final int NULL_LENGTH = 0xFF;
+    private static final String CHARSET = "UTF-8";
+
+    private final File file;
+    private final int mask;
+    private final int maxEntries;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private MappedByteBuffer buffer;
+    private int size;
+
+    /**
+     * @param file the backing file, or null for a temporary file; its previous
+     * content is discarded
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public MappedSessionStore(File file, int capacity) {
+        int slots = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        if(slots > Integer.MAX_VALUE / SLOT_SIZE)
+            throw new IllegalArgumentException(String.format("Capacity %d exceeds the size of a single mapping", capacity));
+        this.mask = slots - 1;
+        this.maxEntries = slots / 4 * 3;
+        try {
+            this.file = null == file ? File.createTempFile("hms-sessions", ".dat") : file;
+            RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+            try {
+                raf.setLength(0);
+                raf.setLength((long) slots * SLOT_SIZE);
+                buffer = raf.getChannel().map(MapMode.READ_WRITE, 0, (long) slots * SLOT_SIZE);
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw new AppException(e);
+        }
+        this.file.deleteOnExit();
+        logger.info(String.format("Session store mapped to %s, %d slots of %d bytes", this.file, slots, SLOT_SIZE));
+    }
+
+    @Override
+    public void save(String sessionId, SessionInfo sessionInfo) {
+        byte[] key = encode(sessionId, WIDTH_SESSION_ID, false);
+        byte[] userId = encode(sessionInfo.getUserId(), WIDTH_USER_ID, false);
+        byte[] loginName = encode(sessionInfo.getLoginName(), WIDTH_LOGIN_NAME, true);
+        byte[] ip = encode(sessionInfo.getIp(), WIDTH_IP, true);
+        int hash = hash(sessionId);
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash, key);
+            if(slot < 0){
+                if(size >= maxEntries)
+                    throw new AppException(String.format("Session store is full (%d sessions)", size));
+                slot = insertionSlot(hash);
+                size++;
+            }
+            int base = slot * SLOT_SIZE;
+            buffer.put(base, USED);
+            buffer.putInt(base + OFFSET_HASH, hash);
+            write(base + OFFSET_SESSION_ID, key);
+            write(base + OFFSET_USER_ID, userId);
+            write(base + OFFSET_LOGIN_NAME, loginName);
+            write(base + OFFSET_IP, ip);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public SessionInfo load(String sessionId) {
+        if(null == sessionId)
+            return null;
+        byte[] key = encode(sessionId, WIDTH_SESSION_ID, false);
+        lock.readLock().lock();
+        try {
+            int slot = find(hash(sessionId), key);
+            if(slot < 0)
+                return null;
+            int base = slot * SLOT_SIZE;
+            SessionInfo sessionInfo = new SessionInfo();
+            sessionInfo.setUserId(read(base + OFFSET_USER_ID));
+            sessionInfo.setLoginName(read(base + OFFSET_LOGIN_NAME));
+            sessionInfo.setIp(read(base + OFFSET_IP));
+            return sessionInfo;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        if(null == sessionId)
+            return;
+        byte[] key = encode(sessionId, WIDTH_SESSION_ID, false);
+        lock.writeLock().lock();
+        try {
+            int slot = find(hash(sessionId), key);
+            if(slot >= 0){
+                delete(slot);
+                size--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * The mapping itself is released when the buffer is collected, there is no
+     * portable way to unmap it earlier.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            buffer = null;
+            size = 0;
+            if(!file.delete())
+                logger.warn(String.format("Could not delete the session store file %s", file));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Returns the slot holding the key, or -1.
+     */
+    private int find(int hash, byte[] key){
+        for(int i = 0, slot = hash & mask; i <= mask; i++, slot = (slot + 1) & mask){
+            int base = slot * SLOT_SIZE;
+            byte state = buffer.get(base);
+            if(FREE == state)
+                return -1;
+            if(USED == state && hash == buffer.getInt(base + OFFSET_HASH) && equals(base + OFFSET_SESSION_ID, key))
+                return slot;
+        }
+        return -1;
+    }
+
+    /*
+     * Frees a slot, moving back the entries after it which would not be found any
+     * more (Knuth's algorithm R for linear probing).
+     */
+    private void delete(int slot){
+        int hole = slot;
+        for(int next = (hole + 1) & mask; USED == buffer.get(next * SLOT_SIZE); next = (next + 1) & mask){
+            int home = buffer.getInt(next * SLOT_SIZE + OFFSET_HASH) & mask;
+            // stays if its home is cyclically in (hole, next]
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if(!stays){
+                copy(next, hole);
+                hole = next;
+            }
+        }
+        buffer.put(hole * SLOT_SIZE, FREE);
+    }
+
+    private void copy(int from, int to){
+        int source = from * SLOT_SIZE;
+        int target = to * SLOT_SIZE;
+        for(int i = 0; i < SLOT_SIZE; i += 8)
+            buffer.putLong(target + i, buffer.getLong(source + i));
+    }
+
+    /*
+     * Returns the first free slot of the probe sequence.
+     */
+    private int insertionSlot(int hash){
+        for(int slot = hash & mask; ; slot = (slot + 1) & mask){
+            if(USED != buffer.get(slot * SLOT_SIZE))
+                return slot;
+        }
+    }
+
+    private boolean equals(int offset, byte[] field){
+        for(int i = 0; i < field.length; i++){
+            if(buffer.get(offset + i) != field[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void write(int offset, byte[] field){
+        for(int i = 0; i < field.length; i++)
+            buffer.put(offset + i, field[i]);
+    }
+
+    private String read(int offset){
+        int length = buffer.get(offset) & 0xFF;
+        if(NULL_LENGTH == length)
+            return null;
+        byte[] bytes = new byte[length];
+        for(int i = 0; i < length; i++)
+            bytes[i] = buffer.get(offset + 1 + i);
+        try {
+            return new String(bytes, CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new AppException(e);
+        }
+    }
+
+    /*
+     * Encodes a field as its length byte followed by its UTF-8 bytes, truncated
+     * to the width on a character boundary if allowed.
+     */
+    private static byte[] encode(String value, int width, boolean truncate){
+        if(null == value)
+            return new byte[]{(byte) NULL_LENGTH};
+        byte[] bytes;
+        try {
+            bytes = value.getBytes(CHARSET);
+        } catch (UnsupportedEncodingException e) {
+            throw new AppException(e);
+        }
+        int length = bytes.length;
+        if(length > width){
+            if(!truncate)
+                throw new IllegalArgumentException(String.format("'%s' exceeds the %d bytes of its session store field", value, width));
+            length = width;
+            // not in the middle of a character: continuation bytes are 10xxxxxx
+            while(length > 0 && (bytes[length] & 0xC0) == 0x80)
+                length--;
+        }
+        byte[] field = new byte[length + 1];
+        System.arraycopy(bytes, 0, field, 1, length);
+        field[0] = (byte) length;
+        return field;
+    }
+
+    private static int hash(String sessionId){
+        int h = sessionId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+}
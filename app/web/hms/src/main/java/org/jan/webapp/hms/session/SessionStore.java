@@ -0,0 +1,45 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.session;
+
+import org.jan.webapp.hms.model.page.SessionInfo;
+
+/**
+ * Keeps the {@link SessionInfo} of logged in users outside of the container
+ * <code>HttpSession</code>, keyed by the session id. The session itself only holds
+ * the login name, so container sessions stay small and cheap to serialize.
+ *
+ * @author Jan.Wang
+ *
+ */
+public interface SessionStore {
+
+    /**
+     * Stores the session info, replacing any previous one of the session.
+     */
+    void save(String sessionId, SessionInfo sessionInfo);
+
+    /**
+     * @return the session info, or null if the session is not logged in
+     */
+    SessionInfo load(String sessionId);
+
+    void remove(String sessionId);
+
+    int size();
+
+    /**
+     * Releases the resources of the store, its content is lost.
+     */
+    void close();
+
+}
@@ -0,0 +1,257 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.startup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.jan.webapp.hms.exception.AppException;
+import org.jan.webapp.hms.startup.StartupStage.State;
+
+/**
+ * Runs the {@link StartupStage}s of the application along their dependency graph.
+ * <p>
+ * A stage is submitted to a bounded pool as soon as all its dependencies succeeded,
+ * so independent stages run in parallel. When a stage fails, the stages depending on
+ * it are skipped. Each stage records its start offset and duration, and a timing
+ * report is logged once all stages are finished. The application is ready when
+ * every critical stage succeeded.
+ *
+ * @author Jan.Wang
+ *
+ */
+public class StartupOrchestrator {
+
+    private static final Logger logger = Logger.getLogger(StartupOrchestrator.class);
+
+    private final int poolSize;
+    private final Map<String, StartupStage> stages = new LinkedHashMap<String, StartupStage>();
+    private final Map<String, List<StartupStage>> dependents = new LinkedHashMap<String, List<StartupStage>>();
+    private final Set<String> submitted = new HashSet<String>();
+
+    private ExecutorService executor;
+    private CountDownLatch remaining;
+    private long startTime;
+    private volatile long elapsedMillis = -1L;
+
+    /**
+     * @param poolSize maximum number of stages running at the same time
+     */
+    public StartupOrchestrator(int poolSize){
+        this.poolSize = Math.max(1, poolSize);
+    }
+
+    public synchronized StartupOrchestrator addStage(StartupStage stage){
+        if(null != executor)
+            throw new IllegalStateException("Startup already started");
+        if(null != stages.put(stage.getName(), stage))
+            throw new IllegalArgumentException(String.format("Duplicate startup stage %s", stage.getName()));
+        return this;
+    }
+
+    /**
+     * Validates the graph and submits the stages without dependencies.
+     *
+     * @throws AppException if a dependency is unknown or the graph has a cycle
+     */
+    public synchronized void start(){
+        if(null != executor)
+            return;
+        for(StartupStage stage : stages.values()){
+            for(String dependency : stage.getDependencies()){
+                if(!stages.containsKey(dependency))
+                    throw new AppException(String.format("Startup stage %s depends on unknown stage %s", stage.getName(), dependency));
+                List<StartupStage> list = dependents.get(dependency);
+                if(null == list){
+                    list = new ArrayList<StartupStage>();
+                    dependents.put(dependency, list);
+                }
+                list.add(stage);
+            }
+        }
+        checkCycles();
+        remaining = new CountDownLatch(stages.size());
+        executor = Executors.newFixedThreadPool(Math.min(poolSize, Math.max(1, stages.size())), new StageThreadFactory());
+        startTime = System.currentTimeMillis();
+        for(StartupStage stage : stages.values()){
+            if(stage.getDependencies().isEmpty())
+                submit(stage);
+        }
+        if(stages.isEmpty())
+            finish();
+    }
+
+    /**
+     * Waits for all stages to finish.
+     *
+     * @return true if they finished within the timeout
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        CountDownLatch latch;
+        synchronized (this) {
+            latch = remaining;
+        }
+        if(null == latch)
+            throw new IllegalStateException("Startup not started");
+        return latch.await(timeout, unit);
+    }
+
+    public boolean isFinished(){
+        return elapsedMillis >= 0;
+    }
+
+    /**
+     * @return true when every critical stage succeeded
+     */
+    public boolean isReady(){
+        for(StartupStage stage : getStages()){
+            if(stage.isCritical() && State.SUCCEEDED != stage.getState())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the duration of the whole startup in milliseconds, or -1 while it runs
+     */
+    public long getElapsedMillis(){
+        return elapsedMillis;
+    }
+
+    public synchronized List<StartupStage> getStages(){
+        return new ArrayList<StartupStage>(stages.values());
+    }
+
+    /**
+     * Interrupts the stages still running.
+     */
+    public synchronized void stop(){
+        if(null != executor)
+            executor.shutdownNow();
+    }
+
+    private void submit(final StartupStage stage){
+        submitted.add(stage.getName());
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                execute(stage);
+            }
+        });
+    }
+
+    private void execute(StartupStage stage){
+        long begin = System.currentTimeMillis();
+        stage.started(begin - startTime);
+        Throwable error = null;
+        try {
+            stage.run();
+        } catch (Throwable e) {
+            error = e;
+            logger.error(String.format("Startup stage %s failed", stage.getName()), e);
+        }
+        stage.finished(System.currentTimeMillis() - begin, error);
+        completed(stage);
+    }
+
+    private synchronized void completed(StartupStage stage){
+        remaining.countDown();
+        List<StartupStage> list = dependents.get(stage.getName());
+        if(null != list){
+            for(StartupStage dependent : list){
+                if(submitted.contains(dependent.getName()) || State.PENDING != dependent.getState())
+                    continue;
+                if(State.SUCCEEDED != stage.getState())
+                    skip(dependent);
+                else if(dependenciesSucceeded(dependent))
+                    submit(dependent);
+            }
+        }
+        if(0 == remaining.getCount())
+            finish();
+    }
+
+    private void skip(StartupStage stage){
+        if(State.PENDING != stage.getState())
+            return;
+        stage.skipped();
+        logger.warn(String.format("Startup stage %s skipped", stage.getName()));
+        remaining.countDown();
+        List<StartupStage> list = dependents.get(stage.getName());
+        if(null != list){
+            for(StartupStage dependent : list)
+                skip(dependent);
+        }
+    }
+
+    private boolean dependenciesSucceeded(StartupStage stage){
+        for(String dependency : stage.getDependencies()){
+            if(State.SUCCEEDED != stages.get(dependency).getState())
+                return false;
+        }
+        return true;
+    }
+
+    private void finish(){
+        elapsedMillis = System.currentTimeMillis() - startTime;
+        executor.shutdown();
+        StringBuilder report = new StringBuilder(String.format("Startup finished in %d ms, %s", elapsedMillis, isReady() ? "ready" : "NOT ready"));
+        for(StartupStage stage : stages.values()){
+            report.append(String.format("%n  %-20s %-9s %6d ms  start +%d ms  %s%s", stage.getName(), stage.getState(),
+                    stage.getMillis(), stage.getStartMillis(), null == stage.getThread() ? "" : stage.getThread(),
+                    stage.isCritical() ? "  (critical)" : ""));
+        }
+        logger.info(report);
+    }
+
+    private void checkCycles(){
+        Set<String> done = new HashSet<String>();
+        for(String name : stages.keySet())
+            visit(name, new HashSet<String>(), done);
+    }
+
+    private void visit(String name, Set<String> path, Set<String> done){
+        if(done.contains(name))
+            return;
+        if(!path.add(name))
+            throw new AppException(String.format("Startup stages form a cycle through %s", name));
+        for(String dependency : stages.get(name).getDependencies())
+            visit(dependency, path, done);
+        path.remove(name);
+        done.add(name);
+    }
+
+    private static class StageThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "hms-startup-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+/************************************************************************
+ Copyright (C) Unpublished Electronic Arts (EA) Software, Inc.
+ All rights reserved. EA Software, Inc., Confidential and Proprietary.
+
+ This software is subject to copyright protection
+ under the laws of the Canada and other countries.
+
+ Unless otherwise explicitly stated, this software is provided
+ by Electronic Arts (EA).
+
+ *************************************************************************/
+package org.jan.webapp.hms.startup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One initialization step run by the {@link StartupOrchestrator} once all the
+ * stages it depends on have succeeded.
+ *
+ * @author Jan.Wang
+ *
+ */
+public abstract class StartupStage {
+
+    public enum State {PENDING, RUNNING, SUCCEEDED, FAILED, SKIPPED}
+
+    private final String name;
+    private final boolean critical;
+    private final List<String> dependencies;
+
+    private volatile State state = State.PENDING;
+    private volatile long startMillis;
+    private volatile long millis;
+    private volatile String thread;
+    private volatile String error;
+
+    /**
+     * @param name unique name of the stage
+     * @param critical whether the application is not ready until the stage succeeds
+     * @param dependencies names of the stages to run first
+     */
+    protected StartupStage(String name, boolean critical, String... dependencies){
+        this.name = name;
+        this.critical = critical;
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    /**
+     * Performs the initialization; an exception fails the stage and skips the stages
+     * depending on it.
+     */
+    protected abstract void run() throws Exception;
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isCritical() {
+        return critical;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return milliseconds between the start of the orchestrator and the start of the stage
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return duration of the stage in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    void started(long startMillis){
+        this.startMillis = startMillis;
+        this.thread = Thread.currentThread().getName();
+        this.state = State.RUNNING;
+    }
+
+    void finished(long millis, Throwable error){
+        this.millis = millis;
+        if(null != error)
+            this.error = String.valueOf(error.getMessage());
+        this.state = null == error ? State.SUCCEEDED : State.FAILED;
+    }
+
+    void skipped(){
+        this.state = State.SKIPPED;
+    }
+
+}
@@ -12,16 +12,28 @@ public interface Constants {
 
     String DEFAULT_PROPS_NAME = "class path resource [default.properties]";
 
+    String PROFILE_PROPS_NAME = "profile";
+    String PROFILE_PROPS_PATH = "profile-%s.properties";
+
     String CONTENTTYPE_TEXT_HTML = "text/html;charset=utf-8";
 
     String FORMAT_DATE_y_M_d_H_m_s = "yyyy-MM-dd HH:mm:ss";
 
-    String SESSION_NAME_SESSION = "sessionInfo";
+    String SESSION_NAME_LOGIN_NAME = "loginName";
     String SESSION_NAME_USER = "userpagemodel";
 
     String INITIALDATA_PATH = "initialData.xml";
+    String ASSET_MANIFEST_PATH = "asset-manifest.properties";
+    String COMPONENT_INDEX_PATH = "META-INF/hms/components.index";
+    String ENTITY_INDEX_PATH = "META-INF/hms/entities.index";
 
     String REQUEST_NAME_ERROR_MSG = "errorMsg";
+    String REQUEST_NAME_SESSION_INFO = "sessionInfo";
+    String REQUEST_NAME_LOOKUP_STATS = "lookupStats";
+
+    String CONTEXT_NAME_STARTUP = "startup";
+
+    String MDC_KEY_LOGIN_NAME = "loginName";
     
     String MSG_KEY_LOGIN_SUCCESS = "login.success";
     String MSG_KEY_LOGIN_FAILED = "login.failed";
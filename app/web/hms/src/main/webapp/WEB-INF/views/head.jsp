@@ -1,20 +1,22 @@
 <%@ page language="java" pageEncoding="UTF-8" contentType="text/html; charset=UTF-8"%>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core"%>
+<%@ taglib prefix="asset" uri="http://www.jan.org/hms/asset"%>
 <!-- my97日期控件 -->
-<script type="text/javascript" src="resources/script/My97DatePicker/WdatePicker.js" charset="utf-8"></script>
+<script type="text/javascript" src="${asset:url('resources/script/My97DatePicker/WdatePicker.js')}" charset="utf-8"></script>
 <!-- easyui控件 -->
-<link id="easyuiTheme" rel="stylesheet" href="resources/script/jquery-easyui-1.3.1/themes/<c:out value="${cookie.easyuiThemeName.value}" default="default"/>/easyui.css" type="text/css"></link>
-<link rel="stylesheet" href="resources/script/jquery-easyui-1.3.1/themes/icon.css" type="text/css"></link>
-<script type="text/javascript" src="resources/script/jquery-easyui-1.3.1/jquery-1.8.0.min.js" charset="utf-8"></script>
-<script type="text/javascript" src="resources/script/jquery-easyui-1.3.1/jquery.easyui.min.js" charset="utf-8"></script>
-<script type="text/javascript" src="resources/script/jquery-easyui-1.3.1/locale/easyui-lang-zh_CN.js" charset="utf-8"></script>
+<c:set var="easyuiThemeCss">resources/script/jquery-easyui-1.3.1/themes/<c:out value="${cookie.easyuiThemeName.value}" default="default"/>/easyui.css</c:set>
+<link id="easyuiTheme" rel="stylesheet" href="${asset:url(easyuiThemeCss)}" type="text/css"></link>
+<link rel="stylesheet" href="${asset:url('resources/script/jquery-easyui-1.3.1/themes/icon.css')}" type="text/css"></link>
+<script type="text/javascript" src="${asset:url('resources/script/jquery-easyui-1.3.1/jquery-1.8.0.min.js')}" charset="utf-8"></script>
+<script type="text/javascript" src="${asset:url('resources/script/jquery-easyui-1.3.1/jquery.easyui.min.js')}" charset="utf-8"></script>
+<script type="text/javascript" src="${asset:url('resources/script/jquery-easyui-1.3.1/locale/easyui-lang-zh_CN.js')}" charset="utf-8"></script>
 <!-- easyui portal插件 -->
-<link rel="stylesheet" href="resources/script/jquery-easyui-portal/portal.css" type="text/css"></link>
-<script type="text/javascript" src="resources/script/jquery-easyui-portal/jquery.portal.js" charset="utf-8"></script>
+<link rel="stylesheet" href="${asset:url('resources/script/jquery-easyui-portal/portal.css')}" type="text/css"></link>
+<script type="text/javascript" src="${asset:url('resources/script/jquery-easyui-portal/jquery.portal.js')}" charset="utf-8"></script>
 <!-- cookie插件 -->
-<script type="text/javascript" src="resources/script/jquery.cookie.js" charset="utf-8"></script>
+<script type="text/javascript" src="${asset:url('resources/script/jquery.cookie.js')}" charset="utf-8"></script>
 <!-- xhEditor插件库 -->
-<script type="text/javascript" src="resources/script/xheditor-1.1.14/xheditor-1.1.14-zh-cn.min.js" charset="utf-8"></script>
+<script type="text/javascript" src="${asset:url('resources/script/xheditor-1.1.14/xheditor-1.1.14-zh-cn.min.js')}" charset="utf-8"></script>
 <!-- 自己定义的样式和JS扩展 -->
-<link rel="stylesheet" href="resources/css/app.css" type="text/css"></link>
-<script type="text/javascript" src="resources/script/jsUtil.js" charset="utf-8"></script>
\ No newline at end of file
+<link rel="stylesheet" href="${asset:url('resources/css/app.css')}" type="text/css"></link>
+<script type="text/javascript" src="${asset:url('resources/script/jsUtil.js')}" charset="utf-8"></script>
\ No newline at end of file
@@ -0,0 +1,105 @@
+package org.jan.common.utils.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.jan.common.utils.lang.ArrayUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ArrayUtils} lookups and copies against a plain loop and {@link Arrays}.
+ * Every invocation looks up the next of 64 keys, <code>hitRatio</code> of which
+ * are in the array.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ArrayUtilsBenchmark {
+
+    private static final int COUNT = 64;
+
+    @Param({"16", "1024", "65536"})
+    private int size;
+
+    @Param({"0.0", "0.5", "1.0"})
+    private double hitRatio;
+
+    private int[] ints;
+    private String[] strings;
+    private int[] keys;
+    private String[] stringKeys;
+    private int next;
+
+    @Setup
+    public void setUp(){
+        ints = new int[size];
+        strings = new String[size];
+        for(int i = 0; i < size; i++){
+            ints[i] = i;
+            strings[i] = String.valueOf(i);
+        }
+        keys = Fixtures.keys(COUNT, size, hitRatio, 42L);
+        stringKeys = new String[COUNT];
+        for(int i = 0; i < COUNT; i++)
+            // equal but not identical to the element, as a looked up key would be
+            stringKeys[i] = new String(String.valueOf(keys[i]));
+    }
+
+    private int index(){
+        return next++ & (COUNT - 1);
+    }
+
+    @Benchmark
+    public boolean containsInt(){
+        return ArrayUtils.contains(ints, keys[index()]);
+    }
+
+    @Benchmark
+    public boolean containsIntJdk(){
+        int key = keys[index()];
+        for(int i : ints){
+            if(i == key)
+                return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public int indexOfObject(){
+        return ArrayUtils.indexOf(strings, stringKeys[index()]);
+    }
+
+    @Benchmark
+    public int indexOfObjectJdk(){
+        return Arrays.asList(strings).indexOf(stringKeys[index()]);
+    }
+
+    @Benchmark
+    public int[] addInt(){
+        return ArrayUtils.add(ints, keys[index()]);
+    }
+
+    @Benchmark
+    public int[] addIntJdk(){
+        int[] copy = Arrays.copyOf(ints, ints.length + 1);
+        copy[ints.length] = keys[index()];
+        return copy;
+    }
+
+}
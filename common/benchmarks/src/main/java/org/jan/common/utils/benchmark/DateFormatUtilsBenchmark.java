@@ -0,0 +1,63 @@
+package org.jan.common.utils.benchmark;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.jan.common.utils.time.DateFormatUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link DateFormatUtils} against a {@link SimpleDateFormat} created per call,
+ * as most callers do, and one kept per thread.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DateFormatUtilsBenchmark {
+
+    @Param({"yyyy-MM-dd", "yyyy-MM-dd HH:mm:ss", "EEE, dd MMM yyyy HH:mm:ss Z"})
+    private String pattern;
+
+    private Date date;
+    private DateFormat cached;
+
+    @Setup
+    public void setUp(){
+        date = new Date(1356998400000L);
+        cached = new SimpleDateFormat(pattern);
+    }
+
+    @Benchmark
+    public String format(){
+        return DateFormatUtils.format(date, pattern);
+    }
+
+    @Benchmark
+    public String formatJdk(){
+        return new SimpleDateFormat(pattern).format(date);
+    }
+
+    @Benchmark
+    public String formatJdkCached(){
+        return cached.format(date);
+    }
+
+}
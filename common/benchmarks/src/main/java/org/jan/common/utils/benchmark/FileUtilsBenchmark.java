@@ -0,0 +1,84 @@
+package org.jan.common.utils.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.jan.common.utils.file.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FileUtils} whole-file reads and writes against {@link Files}. The files
+ * are small enough to stay in the page cache, so this measures the copying and
+ * decoding, not the disk.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FileUtilsBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    private int length;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    private String charset;
+
+    private String text;
+    private File source;
+    private File target;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = Fixtures.text(length, charset, 42L);
+        source = File.createTempFile("utils-benchmark", ".txt");
+        target = File.createTempFile("utils-benchmark", ".txt");
+        FileUtils.writeStringToFile(source, text, charset);
+    }
+
+    @TearDown
+    public void tearDown(){
+        FileUtils.deleteQuietly(source);
+        FileUtils.deleteQuietly(target);
+    }
+
+    @Benchmark
+    public String readFileToString() throws IOException {
+        return FileUtils.readFileToString(source, charset);
+    }
+
+    @Benchmark
+    public String readFileToStringJdk() throws IOException {
+        return new String(Files.readAllBytes(source.toPath()), charset);
+    }
+
+    @Benchmark
+    public File writeStringToFile() throws IOException {
+        FileUtils.writeStringToFile(target, text, charset);
+        return target;
+    }
+
+    @Benchmark
+    public File writeStringToFileJdk() throws IOException {
+        Files.write(target.toPath(), text.getBytes(charset));
+        return target;
+    }
+
+}
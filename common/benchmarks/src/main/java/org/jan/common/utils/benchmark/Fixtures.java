@@ -0,0 +1,96 @@
+package org.jan.common.utils.benchmark;
+
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Test data shared by the benchmarks.
+ *
+ * @author Jan.Wang
+ *
+ */
+final class Fixtures {
+
+    static final String NEEDLE = "needle";
+
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyz0123456789 ";
+    private static final String WIDE = "abcdefghij 用户菜单角色日志 0123456789";
+    private static final String SPECIAL = "<>&\"'";
+
+    private Fixtures(){}
+
+    /**
+     * Random text of the specified length, made of characters the charset can encode.
+     */
+    static String text(int length, String charset, long seed){
+        String alphabet = Charset.forName(charset).newEncoder().canEncode(WIDE) ? WIDE : ASCII;
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length);
+        for(int i = 0; i < length; i++)
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+
+    /**
+     * <code>count</code> texts of the specified length, <code>hitRatio</code> of them
+     * containing {@link #NEEDLE} in the middle.
+     */
+    static String[] texts(int count, int length, double hitRatio, long seed){
+        Random random = new Random(seed);
+        String[] texts = new String[count];
+        for(int i = 0; i < count; i++){
+            String text = text(Math.max(length, NEEDLE.length()), "UTF-8", seed + i);
+            if(random.nextDouble() < hitRatio){
+                int at = (text.length() - NEEDLE.length()) / 2;
+                text = text.substring(0, at) + NEEDLE + text.substring(at + NEEDLE.length());
+            }else{
+                text = plantPrefixes(text, random);
+            }
+            texts[i] = text;
+        }
+        return texts;
+    }
+
+    /*
+     * Overwrites the text with proper prefixes of the needle every 32 characters or
+     * so, each followed by a space, so that a search starts partial matches as it
+     * would in real text but never finds the needle: the alphabet of the text has
+     * no 'n' of its own.
+     */
+    private static String plantPrefixes(String text, Random random){
+        StringBuilder sb = new StringBuilder(text);
+        for(int at = random.nextInt(32); at + NEEDLE.length() <= sb.length(); at += 16 + random.nextInt(32)){
+            String prefix = NEEDLE.substring(0, 1 + random.nextInt(NEEDLE.length() - 1)) + ' ';
+            sb.replace(at, at + prefix.length(), prefix);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Text of the specified length, <code>specialRatio</code> of its characters
+     * being ones the HTML and XML escapes replace.
+     */
+    static String markup(int length, double specialRatio, long seed){
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length);
+        for(int i = 0; i < length; i++){
+            if(random.nextDouble() < specialRatio)
+                sb.append(SPECIAL.charAt(random.nextInt(SPECIAL.length())));
+            else
+                sb.append(ASCII.charAt(random.nextInt(ASCII.length())));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * <code>count</code> lookup keys of which <code>hitRatio</code> are among 0 to <code>size</code> - 1.
+     */
+    static int[] keys(int count, int size, double hitRatio, long seed){
+        Random random = new Random(seed);
+        int[] keys = new int[count];
+        for(int i = 0; i < count; i++)
+            keys[i] = random.nextDouble() < hitRatio ? random.nextInt(size) : size + random.nextInt(size);
+        return keys;
+    }
+
+}
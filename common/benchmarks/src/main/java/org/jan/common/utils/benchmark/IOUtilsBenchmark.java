@@ -0,0 +1,105 @@
+package org.jan.common.utils.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+import org.jan.common.utils.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link IOUtils} reading and copying in-memory streams, against the loops
+ * they save writing.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class IOUtilsBenchmark {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    @Param({"1024", "65536", "1048576"})
+    private int length;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    private String charset;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        bytes = Fixtures.text(length, charset, 42L).getBytes(charset);
+    }
+
+    @Benchmark
+    public String toStringUtils() throws IOException {
+        return IOUtils.toString(new ByteArrayInputStream(bytes), charset);
+    }
+
+    @Benchmark
+    public String toStringJdk() throws IOException {
+        Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), charset);
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while(-1 != (n = reader.read(buffer)))
+            sb.append(buffer, 0, n);
+        return sb.toString();
+    }
+
+    @Benchmark
+    public byte[] toByteArray() throws IOException {
+        return IOUtils.toByteArray(new ByteArrayInputStream(bytes));
+    }
+
+    @Benchmark
+    public byte[] toByteArrayJdk() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copy(new ByteArrayInputStream(bytes), out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public int copy() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+        return IOUtils.copy(new ByteArrayInputStream(bytes), out);
+    }
+
+    @Benchmark
+    public int copyJdk() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+        return copy(new ByteArrayInputStream(bytes), out);
+    }
+
+    private static int copy(InputStream in, ByteArrayOutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int count = 0;
+        int n;
+        while(-1 != (n = in.read(buffer))){
+            out.write(buffer, 0, n);
+            count += n;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.jan.common.utils.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jan.common.utils.lang.StringEscapeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link StringEscapeUtils} HTML and XML escaping. The JDK has no equivalent, so
+ * the baseline is the switch over the five markup characters a page needs.
+ * <code>specialRatio</code> is the share of characters to escape.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StringEscapeUtilsBenchmark {
+
+    @Param({"64", "4096"})
+    private int length;
+
+    @Param({"0.0", "0.05", "0.5"})
+    private double specialRatio;
+
+    private String text;
+
+    @Setup
+    public void setUp(){
+        text = Fixtures.markup(length, specialRatio, 42L);
+    }
+
+    @Benchmark
+    public String escapeHtml(){
+        return StringEscapeUtils.escapeHtml(text);
+    }
+
+    @Benchmark
+    public String escapeXml(){
+        return StringEscapeUtils.escapeXml(text);
+    }
+
+    @Benchmark
+    public String escapeBaseline(){
+        StringBuilder sb = null;
+        for(int i = 0; i < text.length(); i++){
+            String entity;
+            switch(text.charAt(i)){
+            case '<': entity = "&lt;"; break;
+            case '>': entity = "&gt;"; break;
+            case '&': entity = "&amp;"; break;
+            case '"': entity = "&quot;"; break;
+            case '\'': entity = "&#39;"; break;
+            default: entity = null;
+            }
+            if(null == entity){
+                if(null != sb)
+                    sb.append(text.charAt(i));
+                continue;
+            }
+            if(null == sb)
+                sb = new StringBuilder(text.length() + 16).append(text, 0, i);
+            sb.append(entity);
+        }
+        return null == sb ? text : sb.toString();
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.jan.common.utils.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jan.common.utils.lang.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link StringUtils} search, replace, split and join, each next to the
+ * {@link String} method it stands in for. Every invocation takes the next of
+ * 64 texts, <code>hitRatio</code> of which contain the searched string.
+ *
+ * @author Jan.Wang
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StringUtilsBenchmark {
+
+    private static final int COUNT = 64;
+
+    @Param({"16", "1024", "16384"})
+    private int length;
+
+    @Param({"0.0", "0.5", "1.0"})
+    private double hitRatio;
+
+    private String[] texts;
+    private String[][] tokens;
+    private int next;
+
+    @Setup
+    public void setUp(){
+        texts = Fixtures.texts(COUNT, length, hitRatio, 42L);
+        tokens = new String[COUNT][];
+        for(int i = 0; i < COUNT; i++)
+            tokens[i] = texts[i].split(" ");
+    }
+
+    private int index(){
+        return next++ & (COUNT - 1);
+    }
+
+    @Benchmark
+    public int indexOf(){
+        return StringUtils.indexOf(texts[index()], Fixtures.NEEDLE);
+    }
+
+    @Benchmark
+    public int indexOfJdk(){
+        return texts[index()].indexOf(Fixtures.NEEDLE);
+    }
+
+    @Benchmark
+    public boolean contains(){
+        return StringUtils.contains(texts[index()], Fixtures.NEEDLE);
+    }
+
+    @Benchmark
+    public boolean containsJdk(){
+        return texts[index()].contains(Fixtures.NEEDLE);
+    }
+
+    @Benchmark
+    public String replace(){
+        return StringUtils.replace(texts[index()], Fixtures.NEEDLE, "pin");
+    }
+
+    @Benchmark
+    public String replaceJdk(){
+        return texts[index()].replace(Fixtures.NEEDLE, "pin");
+    }
+
+    @Benchmark
+    public String[] split(){
+        return StringUtils.split(texts[index()], " ");
+    }
+
+    @Benchmark
+    public String[] splitJdk(){
+        return texts[index()].split(" ");
+    }
+
+    @Benchmark
+    public String join(){
+        return StringUtils.join(tokens[index()], ",");
+    }
+
+    @Benchmark
+    public String joinJdk(){
+        String[] array = tokens[index()];
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < array.length; i++){
+            if(i > 0)
+                sb.append(',');
+            sb.append(array[i]);
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public boolean isBlank(){
+        return StringUtils.isBlank(texts[index()]);
+    }
+
+    @Benchmark
+    public boolean isBlankJdk(){
+        return texts[index()].trim().isEmpty();
+    }
+
+}
@@ -1,9 +1,12 @@
 package org.jan.common.utils.exe;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.jan.common.utils.io.IOUtils;
 
@@ -14,6 +17,8 @@ import org.jan.common.utils.io.IOUtils;
  */
 public class EXEUtils {
 
+    private static ProcessEngine engine;
+
     /**
      * Executes command line.
      *
@@ -58,6 +63,31 @@ public class EXEUtils {
         return exec(binDirectory, new ProcessBuilder(commands));
     }
 
+    /**
+     * Executes command line in the background, streaming its output line by line.
+     *
+     * @param processBuilder  the command line, its directory and environment
+     * @param stdout  the consumer of the standard output, null to drop it
+     * @param stderr  the consumer of the error output, null to drop it
+     * @param timeout  the time the process may run, 0 or less for no limit
+     * @param unit  the unit of the timeout
+     * @return the future result of the process
+     * @see ProcessEngine#submit(ProcessBuilder, ProcessEngine.LineConsumer, ProcessEngine.LineConsumer, long, TimeUnit)
+     */
+    public static Future<ProcessResult> submit(ProcessBuilder processBuilder, ProcessEngine.LineConsumer stdout,
+            ProcessEngine.LineConsumer stderr, long timeout, TimeUnit unit){
+        return getEngine().submit(processBuilder, stdout, stderr, timeout, unit);
+    }
+
+    /*
+     * The engine shared by the background executions, running as many processes as processors.
+     */
+    private static synchronized ProcessEngine getEngine(){
+        if(null == engine)
+            engine = new ProcessEngine(Runtime.getRuntime().availableProcessors());
+        return engine;
+    }
+
     /*
      * Executes command line.
      */
@@ -69,7 +99,9 @@ public class EXEUtils {
         try {
             Process process = processBuilder.start();
             input = process.getInputStream();
-            return IOUtils.toString(input);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            IOUtils.copy(input, output);
+            return output.toString();
         } catch (IOException e) {
             e.printStackTrace();
             throw new RuntimeException(e);
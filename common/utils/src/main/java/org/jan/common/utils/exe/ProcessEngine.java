@@ -0,0 +1,434 @@
+package org.jan.common.utils.exe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jan.common.utils.io.IOUtils;
+
+/**
+ * Runs command lines in child processes, a bounded number at once, streaming
+ * their output line by line to consumers instead of collecting it.
+ * <p>
+ * Each process running takes a thread of the engine waiting for it, and one
+ * reading each of its output streams. Commands submitted while all processes
+ * are running wait in a bounded queue; over it they are rejected with a
+ * <code>RejectedExecutionException</code>.
+ * <p>
+ * A process running over its timeout is asked to terminate, then killed if it
+ * is still running after the grace period of the engine. Its result is then
+ * set without waiting for the end of its output, which children of the process
+ * may hold open, leaving the threads reading it to end with the pipes. The output of all the
+ * processes is limited to a number of characters per process: the lines over
+ * it are read and dropped, so the process does not block on a full pipe.
+ * Cancelling the future of a process kills it.
+ * <pre>
+ * Future&lt;ProcessResult&gt; result = engine.submit(new ProcessBuilder("tar", "czf", archive, dir),
+ *         new ProcessEngine.LineConsumer() {
+ *             public void consume(String line) {
+ *                 logger.info(line);
+ *             }
+ *         }, null, 10, TimeUnit.MINUTES);
+ * </pre>
+ *
+ * @author jan.wang
+ */
+public class ProcessEngine implements Closeable {
+
+    /** The default number of characters of output kept per process. */
+    public static final long DEFAULT_MAX_OUTPUT = 1024 * 1024 * 16;
+
+    /** The default time a process is given to terminate before being killed, in milliseconds. */
+    public static final long DEFAULT_KILL_GRACE = 5000;
+
+    private static final int BUFFER_SIZE = 1024 * 4;
+
+    private final ThreadPoolExecutor launcher;
+    private final ExecutorService pumps;
+    private final ScheduledExecutorService timer;
+    private final long maxOutput;
+    private final long killGrace;
+    private final Charset charset;
+
+    /**
+     * Creates an engine with the default limits, in the platform encoding.
+     *
+     * @param maxProcesses  the number of processes running at once, at least 1
+     */
+    public ProcessEngine(int maxProcesses) {
+        this(maxProcesses, maxProcesses * 16, DEFAULT_MAX_OUTPUT, DEFAULT_KILL_GRACE, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates an engine.
+     *
+     * @param maxProcesses  the number of processes running at once, at least 1
+     * @param queueCapacity  the number of commands waiting for a process at most, at least 1
+     * @param maxOutput  the number of characters of output delivered per process
+     * @param killGrace  the time a process timed out is given to terminate
+     *  before being killed, in milliseconds
+     * @param charset  the encoding of the output
+     */
+    public ProcessEngine(int maxProcesses, int queueCapacity, long maxOutput, long killGrace, Charset charset) {
+        // two per running process, and those reading the pipes of the processes killed
+        this.pumps = Executors.newCachedThreadPool(new NamedThreadFactory("process-output-"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("process-timer-"));
+        this.launcher = new ThreadPoolExecutor(maxProcesses, maxProcesses, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new NamedThreadFactory("process-")) {
+            @Override
+            protected void terminated() {
+                // the jobs queued at close still need both
+                pumps.shutdown();
+                timer.shutdown();
+            }
+        };
+        this.launcher.allowCoreThreadTimeOut(true);
+        this.maxOutput = maxOutput;
+        this.killGrace = killGrace;
+        this.charset = charset;
+    }
+
+    /**
+     * Runs a command. The consumers are called on threads of the engine, one
+     * line at a time for each stream, without their line separators.
+     *
+     * @param builder  the command, its directory and environment; if it redirects
+     *  the error stream, all the output goes to the <code>stdout</code> consumer
+     * @param stdout  the consumer of the standard output, null to drop it
+     * @param stderr  the consumer of the error output, null to drop it
+     * @param timeout  the time the process may run, 0 or less for no limit
+     * @param unit  the unit of the timeout
+     * @return the future result of the process, failing with an <code>IOException</code>
+     *  if the process cannot be started
+     * @throws java.util.concurrent.RejectedExecutionException if the queue of the engine is full
+     */
+    public Future<ProcessResult> submit(ProcessBuilder builder, LineConsumer stdout, LineConsumer stderr,
+            long timeout, TimeUnit unit) {
+        Job job = new Job(builder, stdout, stderr, unit.toMillis(timeout));
+        launcher.execute(job);
+        return job;
+    }
+
+    /**
+     * Stops accepting commands; those submitted are run, and the threads of the
+     * engine end after the last of them.
+     */
+    public void close() {
+        launcher.shutdown();
+    }
+
+    /**
+     * Kills a process, asking it to terminate first when <code>force</code> is false.
+     */
+    static void kill(Process process, boolean force) {
+        if (!force) {
+            process.destroy();
+            return;
+        }
+        try {
+            // Java 8 onwards
+            Method destroyForcibly = Process.class.getMethod("destroyForcibly");
+            destroyForcibly.invoke(process);
+            return;
+        } catch (Exception e) {
+            // Java 7, where destroy is all there is
+        }
+        try {
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            Runtime.getRuntime().exec(new String[] {"kill", "-KILL", String.valueOf(pid.getInt(process))});
+        } catch (Exception e) {
+            process.destroy();
+        }
+    }
+
+    private static boolean hasExited(Process process) {
+        try {
+            process.exitValue();
+            return true;
+        } catch (IllegalThreadStateException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Takes the lines of output of a process, one at a time.
+     */
+    public interface LineConsumer {
+
+        /**
+         * @param line  a line of output, without its line separator
+         */
+        void consume(String line);
+    }
+
+    /**
+     * A process, from its start to its end.
+     */
+    private class Job extends FutureTask<ProcessResult> {
+
+        private final ProcessBuilder builder;
+        private final LineConsumer stdout;
+        private final LineConsumer stderr;
+        private final long timeout;
+        private final Output output = new Output(maxOutput);
+        private volatile Process process;
+        private volatile boolean timedOut;
+        /** Whether the process was timed out or cancelled. */
+        private volatile boolean killed;
+
+        Job(ProcessBuilder builder, LineConsumer stdout, LineConsumer stderr, long timeout) {
+            // run is overridden, the result set by it
+            super(new Runnable() {
+                public void run() {
+                }
+            }, null);
+            this.builder = builder;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return; // cancelled while queued
+            }
+            long start = System.currentTimeMillis();
+            ScheduledFuture<?> deadline = null;
+            try {
+                process = builder.start();
+                if (isCancelled()) {
+                    kill(process, true);
+                }
+                if (timeout > 0) {
+                    deadline = timer.schedule(new Runnable() {
+                        public void run() {
+                            timedOut = true;
+                            killed = true;
+                            terminate();
+                        }
+                    }, timeout, TimeUnit.MILLISECONDS);
+                }
+                IOUtils.closeQuietly(process.getOutputStream());
+                Future<?> outputs = pumps.submit(new Pump(process.getInputStream(), stdout, output));
+                Future<?> errors = null;
+                if (!builder.redirectErrorStream()) {
+                    errors = pumps.submit(new Pump(process.getErrorStream(), stderr, output));
+                }
+                int exitCode = process.waitFor();
+                await(outputs);
+                if (errors != null) {
+                    await(errors);
+                }
+                set(new ProcessResult(exitCode, timedOut, output.truncated, System.currentTimeMillis() - start));
+            } catch (ExecutionException e) {
+                setException(e.getCause());
+            } catch (Throwable e) {
+                setException(e);
+            } finally {
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+                if (process != null) {
+                    IOUtils.closeQuietly(process.getInputStream());
+                    IOUtils.closeQuietly(process.getErrorStream());
+                    if (!hasExited(process)) {
+                        kill(process, true);
+                    }
+                }
+            }
+        }
+
+        /*
+         * Waits for the end of an output stream, for the grace period only if the process was killed.
+         */
+        private void await(Future<?> pump) throws InterruptedException, ExecutionException {
+            if (!killed) {
+                pump.get();
+                return;
+            }
+            try {
+                pump.get(killGrace, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // held open by a child of the process
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(false);
+            killed = true;
+            if (cancelled && process != null) {
+                kill(process, true);
+            }
+            return cancelled;
+        }
+
+        /*
+         * Asks the process to terminate, and kills it after the grace period.
+         */
+        private void terminate() {
+            final Process running = process;
+            kill(running, false);
+            try {
+                timer.schedule(new Runnable() {
+                    public void run() {
+                        if (!hasExited(running)) {
+                            kill(running, true);
+                        }
+                    }
+                }, killGrace, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // the engine is gone with its last job, which no longer waits
+                kill(running, true);
+            }
+        }
+    }
+
+    /**
+     * The characters of output a process may still deliver, shared by its two streams.
+     */
+    private static class Output {
+
+        private final AtomicLong remaining;
+        private volatile boolean truncated;
+
+        Output(long max) {
+            this.remaining = new AtomicLong(max);
+        }
+
+        /*
+         * Takes up to the number of characters asked for, returns those granted.
+         */
+        int take(int count) {
+            while (true) {
+                long left = remaining.get();
+                int granted = (int) Math.min(left, count);
+                if (remaining.compareAndSet(left, left - granted)) {
+                    if (granted < count) {
+                        truncated = true;
+                    }
+                    return granted;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a stream to its end, splitting it in lines for a consumer.
+     */
+    private class Pump implements Runnable {
+
+        private final InputStream input;
+        private final LineConsumer consumer;
+        private final Output output;
+
+        Pump(InputStream input, LineConsumer consumer, Output output) {
+            this.input = input;
+            this.consumer = consumer;
+            this.output = output;
+        }
+
+        public void run() {
+            Reader reader = new InputStreamReader(input, charset);
+            char[] buffer = new char[BUFFER_SIZE];
+            StringBuilder line = new StringBuilder();
+            boolean skipLF = false;
+            boolean dropping = false;
+            try {
+                int n;
+                while ((n = reader.read(buffer)) != -1) {
+                    if (consumer == null) {
+                        continue; // drained
+                    }
+                    if (dropping) {
+                        output.truncated = true;
+                        continue; // drained
+                    }
+                    int start = 0;
+                    for (int i = 0; i < n && !dropping; i++) {
+                        char c = buffer[i];
+                        if (c != '\n' && c != '\r') {
+                            continue;
+                        }
+                        if (skipLF && c == '\n' && i == start) {
+                            skipLF = false;
+                            start = i + 1;
+                            continue;
+                        }
+                        dropping = append(line, buffer, start, i);
+                        consumer.consume(line.toString());
+                        line.setLength(0);
+                        skipLF = c == '\r';
+                        start = i + 1;
+                    }
+                    if (start < n && dropping) {
+                        output.truncated = true;
+                    } else if (start < n) {
+                        skipLF = false;
+                        dropping = append(line, buffer, start, n);
+                        if (dropping) {
+                            // the line the limit was reached in
+                            consumer.consume(line.toString());
+                            line.setLength(0);
+                        }
+                    }
+                }
+                if (line.length() > 0) {
+                    consumer.consume(line.toString());
+                }
+            } catch (IOException e) {
+                // closed when the process was killed
+            } finally {
+                IOUtils.closeQuietly(reader);
+            }
+        }
+
+        /*
+         * Appends what the output limit allows, returns whether the limit is reached.
+         */
+        private boolean append(StringBuilder line, char[] buffer, int start, int end) {
+            int granted = output.take(end - start);
+            line.append(buffer, start, granted);
+            return output.remaining.get() == 0;
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
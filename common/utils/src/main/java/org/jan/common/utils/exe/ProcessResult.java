@@ -0,0 +1,64 @@
+package org.jan.common.utils.exe;
+
+/**
+ * How a process run by a {@link ProcessEngine} ended.
+ *
+ * @author jan.wang
+ */
+public class ProcessResult {
+
+    private final int exitCode;
+    private final boolean timedOut;
+    private final boolean outputTruncated;
+    private final long duration;
+
+    ProcessResult(int exitCode, boolean timedOut, boolean outputTruncated, long duration) {
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+        this.outputTruncated = outputTruncated;
+        this.duration = duration;
+    }
+
+    /**
+     * @return the exit code of the process, that of the signal killing it for a
+     *  process timed out (143 or 137 on Unix)
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return whether the process was killed for running over its timeout
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return whether output over the limit of the engine was dropped
+     */
+    public boolean isOutputTruncated() {
+        return outputTruncated;
+    }
+
+    /**
+     * @return the time from the start of the process to its end, in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return whether the process exited with 0 in time
+     */
+    public boolean isSuccess() {
+        return exitCode == 0 && !timedOut;
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessResult[exitCode=" + exitCode + ", timedOut=" + timedOut
+                + ", outputTruncated=" + outputTruncated + ", duration=" + duration + "ms]";
+    }
+
+}
@@ -0,0 +1,513 @@
+package org.jan.common.utils.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jan.common.utils.io.BufferPool;
+import org.jan.common.utils.io.IOUtils;
+
+/**
+ * Reads, writes and copies files without blocking the calling thread, with
+ * <code>AsynchronousFileChannel</code>s, so that a request thread can hand an
+ * upload or an export over and go on.
+ * <p>
+ * Each method returns at once a <code>Future</code> of its result, and can also
+ * call a <code>CompletionHandler</code> when done. The IO and the handlers run on
+ * the bounded pool of threads of this instance. The operations in progress are
+ * bounded too: once there are as many as the threads and the queue capacity,
+ * starting one waits until another finishes, which slows producers down rather
+ * than letting work pile up. The steps of the operations started are always
+ * handed over to the pool, never run by the thread completing the previous one.
+ * Cancelling a future closes the files, which stops the operation; a file being
+ * written is then left incomplete.
+ * <pre>
+ * Future&lt;Long&gt; written = AsyncFileUtils.getDefault().writeAsync(file, bytes, false);
+ * /// ... later, or never
+ * written.get();
+ * </pre>
+ *
+ * @since 1.0
+ */
+public class AsyncFileUtils implements Closeable {
+
+    private static final int COPY_BUFFER_SIZE = 1024 * 64;
+
+    private static final Set<StandardOpenOption> READ = EnumSet.of(StandardOpenOption.READ);
+    private static final Set<StandardOpenOption> WRITE = EnumSet.of(StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    private static final Set<StandardOpenOption> APPEND = EnumSet.of(StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE);
+
+    private static final AsyncFileUtils DEFAULT = new AsyncFileUtils(Runtime.getRuntime().availableProcessors(), 1024);
+
+    private final ThreadPoolExecutor executor;
+    /** The operations which may still start before one has to finish. */
+    private final Semaphore permits;
+    /** Guards the count of operations in progress and the closing. */
+    private final Object lock = new Object();
+    private int inProgress;
+    private boolean closed;
+
+    /**
+     * Creates an instance with its own pool of threads.
+     *
+     * @param threads  the number of threads doing the IO, at least 1
+     * @param queueCapacity  the number of operations waiting for a thread at most, at least 1
+     */
+    public AsyncFileUtils(int threads, int queueCapacity) {
+        final AtomicInteger count = new AtomicInteger();
+        // unbounded on purpose: the permits bound the operations in progress, and
+        // each of them has one step pending at most, so the queue never holds more
+        // than threads + queueCapacity tasks. A bounded queue would reject or block
+        // the next step submitted from a completion handler, stalling the operation.
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new PoolThread(r, "async-file-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.permits = new Semaphore(threads + queueCapacity);
+    }
+
+    /**
+     * @return the instance shared by default, with a thread per processor
+     */
+    public static AsyncFileUtils getDefault() {
+        return DEFAULT;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Reads the contents of a file into a byte array.
+     *
+     * @param file  the file to read, must not be {@code null}
+     * @return the future contents of the file, failing with an <code>IOException</code>
+     *  if the file cannot be read or is over 2GB
+     */
+    public Future<byte[]> readAsync(File file) {
+        return readAsync(file, null, null);
+    }
+
+    /**
+     * Reads the contents of a file into a byte array.
+     *
+     * @param file  the file to read, must not be {@code null}
+     * @param attachment  the object given to the handler
+     * @param handler  called with the contents or the failure, may be {@code null}
+     * @return the future contents of the file
+     */
+    public <A> Future<byte[]> readAsync(File file, A attachment, CompletionHandler<byte[], ? super A> handler) {
+        final Operation<byte[], A> operation = new Operation<byte[], A>(attachment, handler);
+        try {
+            operation.start();
+            final AsynchronousFileChannel channel = operation.open(file.toPath(), READ);
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File '" + file + "' is too large to be read in an array: " + size);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            channel.read(buffer, 0, null, new Step<Integer>(operation) {
+                @Override
+                void next(Integer n) {
+                    if (n.intValue() < 0 || !buffer.hasRemaining()) {
+                        // the file may have shrunk since its size was taken
+                        byte[] data = buffer.array();
+                        operation.complete(buffer.hasRemaining() ? Arrays.copyOf(data, buffer.position()) : data);
+                    } else {
+                        channel.read(buffer, buffer.position(), null, this);
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            operation.fail(e);
+        }
+        return operation;
+    }
+
+    /**
+     * Writes a byte array to a file, creating the file and its parent directories
+     * if they do not exist. The array must not be modified until the write is done.
+     *
+     * @param file  the file to write to, must not be {@code null}
+     * @param data  the content to write, must not be {@code null}
+     * @param append  if {@code true} the bytes are added to the end of the file
+     *  rather than replacing its contents
+     * @return the future number of bytes written
+     */
+    public Future<Long> writeAsync(File file, byte[] data, boolean append) {
+        return writeAsync(file, ByteBuffer.wrap(data), append, null, null);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer to a file, creating the file and its
+     * parent directories if they do not exist. The buffer must not be used until
+     * the write is done.
+     *
+     * @param file  the file to write to, must not be {@code null}
+     * @param data  the content to write, must not be {@code null}
+     * @param append  if {@code true} the bytes are added to the end of the file
+     *  rather than replacing its contents
+     * @param attachment  the object given to the handler
+     * @param handler  called with the number of bytes written or the failure, may be {@code null}
+     * @return the future number of bytes written
+     */
+    public <A> Future<Long> writeAsync(File file, final ByteBuffer data, boolean append,
+            A attachment, CompletionHandler<Long, ? super A> handler) {
+        final Operation<Long, A> operation = new Operation<Long, A>(attachment, handler);
+        try {
+            operation.start();
+            final AsynchronousFileChannel channel = operation.open(createParent(file), append ? APPEND : WRITE);
+            final long start = append ? channel.size() : 0;
+            final int length = data.remaining();
+            if (length == 0) {
+                operation.complete(Long.valueOf(0));
+                return operation;
+            }
+            channel.write(data, start, null, new Step<Integer>(operation) {
+                private long written;
+
+                @Override
+                void next(Integer n) {
+                    written += n.intValue();
+                    if (data.hasRemaining()) {
+                        channel.write(data, start + written, null, this);
+                    } else {
+                        operation.complete(Long.valueOf(written));
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            operation.fail(e);
+        }
+        return operation;
+    }
+
+    /**
+     * Copies a file to a new location, creating the destination and its parent
+     * directories if they do not exist, overwriting it if it does.
+     *
+     * @param srcFile  an existing file to copy, must not be {@code null}
+     * @param destFile  the new file, must not be {@code null}
+     * @return the future number of bytes copied
+     */
+    public Future<Long> copyAsync(File srcFile, File destFile) {
+        return copyAsync(srcFile, destFile, null, null);
+    }
+
+    /**
+     * Copies a file to a new location, creating the destination and its parent
+     * directories if they do not exist, overwriting it if it does.
+     *
+     * @param srcFile  an existing file to copy, must not be {@code null}
+     * @param destFile  the new file, must not be {@code null}
+     * @param attachment  the object given to the handler
+     * @param handler  called with the number of bytes copied or the failure, may be {@code null}
+     * @return the future number of bytes copied
+     */
+    public <A> Future<Long> copyAsync(File srcFile, File destFile, A attachment,
+            CompletionHandler<Long, ? super A> handler) {
+        final Operation<Long, A> operation = new Operation<Long, A>(attachment, handler);
+        try {
+            operation.start();
+            if (srcFile.getCanonicalPath().equals(destFile.getCanonicalPath())) {
+                throw new IOException("Source '" + srcFile + "' and destination '" + destFile + "' are the same");
+            }
+            final AsynchronousFileChannel input = operation.open(srcFile.toPath(), READ);
+            final AsynchronousFileChannel output = operation.open(createParent(destFile), WRITE);
+            final BufferPool pool = BufferPool.getDefault();
+            final ByteBuffer buffer = pool.acquireBuffer(COPY_BUFFER_SIZE, true);
+            Step<Integer> step = new Step<Integer>(operation) {
+                private long position;
+                private boolean reading = true;
+
+                @Override
+                void next(Integer n) {
+                    if (reading) {
+                        if (n.intValue() < 0) {
+                            pool.release(buffer);
+                            operation.complete(Long.valueOf(position));
+                            return;
+                        }
+                        buffer.flip();
+                        reading = false;
+                    } else {
+                        position += n.intValue();
+                    }
+                    if (buffer.hasRemaining()) {
+                        output.write(buffer, position, null, this);
+                    } else {
+                        buffer.clear();
+                        reading = true;
+                        input.read(buffer, position, null, this);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable e, Object attachment) {
+                    // no read or write is pending on the buffer any more
+                    pool.release(buffer);
+                    super.failed(e, attachment);
+                }
+
+                @Override
+                void abandoned() {
+                    pool.release(buffer);
+                }
+            };
+            try {
+                input.read(buffer, 0, null, step);
+            } catch (Throwable e) {
+                // not started, so no step will release it
+                pool.release(buffer);
+                throw e;
+            }
+        } catch (Throwable e) {
+            operation.fail(e);
+        }
+        return operation;
+    }
+
+    /**
+     * Stops accepting work, the operations started afterwards failing with a
+     * <code>RejectedExecutionException</code>; those in progress are completed,
+     * then the threads stop.
+     */
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            if (inProgress == 0) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    private static Path createParent(File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Directory '" + parent + "' could not be created");
+        }
+        return file.toPath();
+    }
+
+    /**
+     * The future of an operation, closing its channels once done or cancelled.
+     */
+    private class Operation<V, A> implements Future<V> {
+
+        private final A attachment;
+        private final CompletionHandler<V, ? super A> handler;
+        private final CountDownLatch done = new CountDownLatch(1);
+        /** The outcome: the value, a Failure, or CANCELLED. */
+        private final AtomicReference<Object> outcome = new AtomicReference<Object>();
+        private volatile Closeable[] channels = new Closeable[0];
+        private boolean started;
+        private boolean permitted;
+
+        Operation(A attachment, CompletionHandler<V, ? super A> handler) {
+            this.attachment = attachment;
+            this.handler = handler;
+        }
+
+        /*
+         * Counts the operation in progress, waiting for a permit unless called
+         * by a step of another operation, which would wait for itself.
+         */
+        void start() {
+            permitted = !(Thread.currentThread() instanceof PoolThread
+                    && ((PoolThread) Thread.currentThread()).owner() == AsyncFileUtils.this);
+            if (permitted) {
+                permits.acquireUninterruptibly();
+            }
+            synchronized (lock) {
+                if (closed) {
+                    if (permitted) {
+                        permits.release();
+                    }
+                    throw new RejectedExecutionException("Closed");
+                }
+                inProgress++;
+                started = true;
+            }
+        }
+
+        AsynchronousFileChannel open(Path path, Set<? extends OpenOption> options) throws IOException {
+            AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, options, executor);
+            Closeable[] opened = Arrays.copyOf(channels, channels.length + 1);
+            opened[channels.length] = channel;
+            channels = opened;
+            if (isDone()) {
+                // cancelled while opening
+                IOUtils.closeQuietly(channel);
+            }
+            return channel;
+        }
+
+        void complete(V value) {
+            if (finish(value == null ? NULL : value) && handler != null) {
+                handler.completed(value, attachment);
+            }
+        }
+
+        void fail(Throwable e) {
+            if (finish(new Failure(e)) && handler != null) {
+                handler.failed(e, attachment);
+            }
+        }
+
+        private boolean finish(Object result) {
+            if (!outcome.compareAndSet(null, result)) {
+                return false;
+            }
+            for (Closeable channel : channels) {
+                IOUtils.closeQuietly(channel);
+            }
+            if (started) {
+                if (permitted) {
+                    permits.release();
+                }
+                synchronized (lock) {
+                    if (--inProgress == 0 && closed) {
+                        executor.shutdown();
+                    }
+                }
+            }
+            done.countDown();
+            return true;
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            CancellationException e = new CancellationException();
+            if (!finish(CANCELLED)) {
+                return false;
+            }
+            if (handler != null) {
+                handler.failed(e, attachment);
+            }
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return outcome.get() == CANCELLED;
+        }
+
+        public boolean isDone() {
+            return outcome.get() != null;
+        }
+
+        public V get() throws InterruptedException, ExecutionException {
+            done.await();
+            return result();
+        }
+
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+                TimeoutException {
+            if (!done.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return result();
+        }
+
+        @SuppressWarnings("unchecked")
+        private V result() throws ExecutionException {
+            Object result = outcome.get();
+            if (result == CANCELLED) {
+                throw new CancellationException();
+            }
+            if (result instanceof Failure) {
+                throw new ExecutionException(((Failure) result).cause);
+            }
+            return result == NULL ? null : (V) result;
+        }
+    }
+
+    /**
+     * A thread of the pool, which knows the instance it works for.
+     */
+    private class PoolThread extends Thread {
+
+        PoolThread(Runnable r, String name) {
+            super(r, name);
+        }
+
+        AsyncFileUtils owner() {
+            return AsyncFileUtils.this;
+        }
+    }
+
+    private static final Object CANCELLED = new Object();
+    private static final Object NULL = new Object();
+
+    private static class Failure {
+
+        private final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * A completion handler going on with the next step of an operation,
+     * or failing it.
+     */
+    private abstract static class Step<T> implements CompletionHandler<T, Object> {
+
+        private final Operation<?, ?> operation;
+
+        Step(Operation<?, ?> operation) {
+            this.operation = operation;
+        }
+
+        public void completed(T result, Object attachment) {
+            if (operation.isDone()) {
+                abandoned(); // cancelled
+                return;
+            }
+            try {
+                next(result);
+            } catch (Throwable e) {
+                failed(e, attachment);
+            }
+        }
+
+        public void failed(Throwable e, Object attachment) {
+            operation.fail(e);
+        }
+
+        abstract void next(T result);
+
+        /*
+         * Called when a read or write completes after the operation was cancelled.
+         */
+        void abandoned() {
+        }
+    }
+
+}
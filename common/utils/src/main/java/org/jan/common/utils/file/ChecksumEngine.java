@@ -0,0 +1,437 @@
+package org.jan.common.utils.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.jan.common.utils.io.BufferPool;
+import org.jan.common.utils.io.IOUtils;
+
+/**
+ * Computes the checksums of large files with several threads, each one
+ * reading its own chunks of the file with positional reads.
+ * <p>
+ * The CRC32 of the chunks are combined into the CRC32 of the whole file with
+ * {@link #crc32Combine(long, long, long)}, so {@link #crc32(File)} returns the
+ * same value as {@link FileUtils#checksumCRC32(File)}. Digests such as SHA-256
+ * cannot be combined that way: {@link #hashTree(File, String)} returns the digest
+ * of the digests of the chunks, a hash tree of two levels, which depends on the
+ * chunk size and differs from the digest of the file read at once.
+ * <p>
+ * The <code>InputStream</code> variants give the same values, reading the stream
+ * on the calling thread while the chunks already read are hashed by the engine.
+ * Between two streams the engine keeps up to <code>parallelism</code> chunks
+ * for the next one, <code>parallelism * chunkSize</code> bytes of heap, until
+ * it is closed.
+ * <pre>
+ * ChecksumEngine engine = new ChecksumEngine();
+ * try {
+ *     long crc = engine.crc32(archive);
+ *     byte[] sha = engine.hashTree(archive, "SHA-256");
+ * } finally {
+ *     engine.close();
+ * }
+ * </pre>
+ *
+ * @since 1.0
+ */
+public class ChecksumEngine implements Closeable {
+
+    /**
+     * The default size of a chunk, 8MB.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024 * 8;
+
+    private static final int BUFFER_SIZE = 1024 * 64;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final int chunkSize;
+    /** Idle chunks kept for the next streams hashed; too large for {@link BufferPool}. */
+    private final BlockingQueue<byte[]> chunks;
+    private volatile boolean closed;
+
+    /**
+     * Creates an engine with a thread per processor and chunks of the default size.
+     */
+    public ChecksumEngine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an engine.
+     *
+     * @param parallelism  the number of threads reading and hashing, at least 1
+     * @param chunkSize  the size of the chunks, at least 1; <code>parallelism</code>
+     *  of them stay allocated between the streams hashed
+     */
+    public ChecksumEngine(int parallelism, int chunkSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+        }
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayBlockingQueue<byte[]>(parallelism);
+        this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "checksum-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the size of the chunks
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Computes the CRC32 checksum of a file, its chunks being read in parallel.
+     *
+     * @param file  the file to checksum, must not be {@code null}
+     * @return the CRC32 of the content of the file
+     * @throws IllegalArgumentException if the file is a directory
+     * @throws IOException if an IO error occurs reading the file
+     */
+    public long crc32(File file) throws IOException {
+        final FileInputStream in = openFile(file);
+        try {
+            final FileChannel channel = in.getChannel();
+            long size = channel.size();
+            List<Future<Long>> futures = new ArrayList<Future<Long>>();
+            for (long position = 0; position < size; position += chunkSize) {
+                final long start = position;
+                final long end = Math.min(size, position + chunkSize);
+                futures.add(executor.submit(new Callable<Long>() {
+                    public Long call() throws IOException {
+                        return Long.valueOf(crc32(channel, start, end));
+                    }
+                }));
+            }
+            long crc = 0;
+            long position = 0;
+            for (Future<Long> future : futures) {
+                long length = Math.min(chunkSize, size - position);
+                crc = crc32Combine(crc, get(future).longValue(), length);
+                position += length;
+            }
+            return crc;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Computes the CRC32 checksum of a stream, read to its end on the calling thread.
+     * CRC32 is computed faster than most streams are read, so the chunks are not
+     * handed to other threads.
+     *
+     * @param input  the stream to checksum, not null, not closed
+     * @return the CRC32 of the content of the stream
+     * @throws IOException if an IO error occurs reading the stream
+     */
+    public static long crc32(InputStream input) throws IOException {
+        CRC32 crc = new CRC32();
+        BufferPool pool = BufferPool.getDefault();
+        byte[] buffer = pool.acquire(BUFFER_SIZE);
+        try {
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, n);
+            }
+        } finally {
+            pool.release(buffer);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Computes the hash tree of a file: the digest of the digests of its chunks,
+     * in order, the chunks being read and hashed in parallel.
+     *
+     * @param file  the file to hash, must not be {@code null}
+     * @param algorithm  the name of the <code>MessageDigest</code> algorithm, "SHA-256" for example
+     * @return the root of the tree
+     * @throws IllegalArgumentException if the file is a directory or the algorithm is unknown
+     * @throws IOException if an IO error occurs reading the file
+     */
+    public byte[] hashTree(File file, final String algorithm) throws IOException {
+        MessageDigest root = newDigest(algorithm);
+        final FileInputStream in = openFile(file);
+        try {
+            final FileChannel channel = in.getChannel();
+            long size = channel.size();
+            List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+            for (long position = 0; position < size; position += chunkSize) {
+                final long start = position;
+                final long end = Math.min(size, position + chunkSize);
+                futures.add(executor.submit(new Callable<byte[]>() {
+                    public byte[] call() throws IOException {
+                        return digest(channel, start, end, newDigest(algorithm));
+                    }
+                }));
+            }
+            for (Future<byte[]> future : futures) {
+                root.update(get(future));
+            }
+            return root.digest();
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Computes the hash tree of a stream, as {@link #hashTree(File, String)} does
+     * for a file. The stream is read to its end on the calling thread, the chunks
+     * being hashed in parallel; at most twice as many chunks as threads are held
+     * in memory at once, and their buffers are reused by the next streams.
+     *
+     * @param input  the stream to hash, not null, not closed
+     * @param algorithm  the name of the <code>MessageDigest</code> algorithm
+     * @return the root of the tree
+     * @throws IllegalArgumentException if the algorithm is unknown
+     * @throws IOException if an IO error occurs reading the stream
+     */
+    public byte[] hashTree(InputStream input, final String algorithm) throws IOException {
+        MessageDigest root = newDigest(algorithm);
+        LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+        try {
+            while (true) {
+                if (pending.size() >= parallelism * 2) {
+                    root.update(get(pending.removeFirst()));
+                }
+                final byte[] chunk = acquireChunk();
+                final int length;
+                try {
+                    length = IOUtils.read(input, chunk);
+                } catch (IOException e) {
+                    releaseChunk(chunk);
+                    throw e;
+                }
+                if (length == 0) {
+                    releaseChunk(chunk);
+                    break;
+                }
+                pending.add(executor.submit(new Callable<byte[]>() {
+                    public byte[] call() {
+                        try {
+                            MessageDigest digest = newDigest(algorithm);
+                            digest.update(chunk, 0, length);
+                            return digest.digest();
+                        } finally {
+                            releaseChunk(chunk);
+                        }
+                    }
+                }));
+                if (length < chunkSize) {
+                    break;
+                }
+            }
+            while (!pending.isEmpty()) {
+                root.update(get(pending.removeFirst()));
+            }
+            return root.digest();
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private byte[] acquireChunk() {
+        byte[] chunk = chunks.poll();
+        return chunk != null ? chunk : new byte[chunkSize];
+    }
+
+    /*
+     * Keeps the chunk for reuse, dropping it when enough are kept already
+     * or the engine is closed.
+     */
+    private void releaseChunk(byte[] chunk) {
+        if (!closed) {
+            chunks.offer(chunk);
+        }
+    }
+
+    /**
+     * Stops the threads of the engine and drops the chunks it kept.
+     */
+    public void close() {
+        closed = true;
+        executor.shutdown();
+        chunks.clear();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Combines two CRC32 checksums: given the CRC32 of two blocks of bytes and
+     * the length of the second one, returns the CRC32 of the two blocks one after
+     * the other, in a time logarithmic in the length (after zlib's <code>crc32_combine</code>).
+     *
+     * @param crc1  the CRC32 of the first block
+     * @param crc2  the CRC32 of the second block
+     * @param length2  the length of the second block
+     * @return the CRC32 of both blocks
+     */
+    public static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32]; // even-power-of-two zeros operator
+        long[] odd = new long[32]; // odd-power-of-two zeros operator
+
+        // operator for one zero bit in odd
+        odd[0] = 0xedb88320L; // CRC-32 polynomial
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd); // two zero bits
+        gf2MatrixSquare(odd, even); // four zero bits
+
+        // apply length2 zeros to crc1 (first square puts the operator for one zero byte in even)
+        long length = length2;
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length >>= 1;
+            if (length == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length >>= 1;
+        } while (length != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    private static FileInputStream openFile(File file) throws IOException {
+        if (file.isDirectory()) {
+            throw new IllegalArgumentException("Checksums can't be computed on directories");
+        }
+        return FileUtils.openInputStream(file);
+    }
+
+    private static long crc32(FileChannel channel, long start, long end) throws IOException {
+        CRC32 crc = new CRC32();
+        BufferPool pool = BufferPool.getDefault();
+        ByteBuffer buffer = pool.acquireBuffer(BUFFER_SIZE, false);
+        try {
+            for (long position = start; position < end;) {
+                int n = read(channel, buffer, position, end);
+                crc.update(buffer.array(), 0, n);
+                position += n;
+            }
+        } finally {
+            pool.release(buffer);
+        }
+        return crc.getValue();
+    }
+
+    private static byte[] digest(FileChannel channel, long start, long end, MessageDigest digest) throws IOException {
+        BufferPool pool = BufferPool.getDefault();
+        ByteBuffer buffer = pool.acquireBuffer(BUFFER_SIZE, false);
+        try {
+            for (long position = start; position < end;) {
+                int n = read(channel, buffer, position, end);
+                digest.update(buffer.array(), 0, n);
+                position += n;
+            }
+        } finally {
+            pool.release(buffer);
+        }
+        return digest.digest();
+    }
+
+    /*
+     * Reads from the position up to the end of the chunk at most, at least one byte.
+     */
+    private static int read(FileChannel channel, ByteBuffer buffer, long position, long end) throws IOException {
+        buffer.clear();
+        if (end - position < buffer.capacity()) {
+            buffer.limit((int) (end - position));
+        }
+        int n = channel.read(buffer, position);
+        if (n <= 0) {
+            throw new IOException("File truncated while computing its checksum at " + position);
+        }
+        return n;
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static <T> T get(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while computing a checksum", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+}
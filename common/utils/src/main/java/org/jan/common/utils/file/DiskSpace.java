@@ -0,0 +1,107 @@
+package org.jan.common.utils.file;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+
+/**
+ * The space of a file store, a volume or a mount point, when it was queried.
+ *
+ * @see FileSystemUtils#getDiskSpace(String)
+ * @since 1.0
+ */
+public class DiskSpace {
+
+    private final String name;
+    private final String type;
+    private final long total;
+    private final long usable;
+    private final long unallocated;
+    private final long timestamp;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param name  the name of the store
+     * @param type  the type of the store
+     * @param total  the size of the store in bytes
+     * @param usable  the bytes available to this JVM
+     * @param unallocated  the bytes not allocated, including those reserved
+     * @param timestamp  the time of the query, in milliseconds
+     */
+    public DiskSpace(String name, String type, long total, long usable, long unallocated, long timestamp) {
+        this.name = name;
+        this.type = type;
+        this.total = total;
+        this.usable = usable;
+        this.unallocated = unallocated;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Queries a file store.
+     *
+     * @param store  the store, not null
+     * @return the space of the store now
+     * @throws IOException if the store cannot be queried
+     */
+    static DiskSpace of(FileStore store) throws IOException {
+        return new DiskSpace(store.name(), store.type(), store.getTotalSpace(), store.getUsableSpace(),
+                store.getUnallocatedSpace(), System.currentTimeMillis());
+    }
+
+    /**
+     * @return the name of the store, the device for example
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the type of the store, the file system for example
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the size of the store in bytes
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the bytes available to this JVM, the free space reported by <code>df</code>
+     */
+    public long getUsable() {
+        return usable;
+    }
+
+    /**
+     * @return the bytes not allocated, including those reserved to the super user
+     */
+    public long getUnallocated() {
+        return unallocated;
+    }
+
+    /**
+     * @return the time of the query, in milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the part of the store available to this JVM, from 0 to 1
+     */
+    public double getUsableRatio() {
+        return total <= 0 ? 0 : (double) usable / total;
+    }
+
+    @Override
+    public String toString() {
+        return "DiskSpace[" + name + " (" + type + "), total=" + FileUtils.byteCountToDisplaySize(total)
+                + ", usable=" + FileUtils.byteCountToDisplaySize(usable) + "]";
+    }
+
+}
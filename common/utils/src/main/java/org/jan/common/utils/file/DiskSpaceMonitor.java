@@ -0,0 +1,223 @@
+package org.jan.common.utils.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the space of file stores on a background thread, keeping the last
+ * sample of each as a gauge and telling its listeners when a store runs low
+ * on space and when it recovers.
+ * <p>
+ * Each sample refreshes the cache of {@link FileSystemUtils}, so the callers of
+ * {@link FileSystemUtils#getDiskSpace(String)} get values at most one period old
+ * without querying the stores themselves.
+ * <pre>
+ * DiskSpaceMonitor monitor = new DiskSpaceMonitor(30, TimeUnit.SECONDS);
+ * monitor.watch("/var/log", 0.1);
+ * monitor.addListener(new DiskSpaceMonitor.Listener() { ... });
+ * monitor.start();
+ * </pre>
+ *
+ * @since 1.0
+ */
+public class DiskSpaceMonitor implements Closeable {
+
+    private final long period;
+    private final TimeUnit unit;
+    /** The minimum usable ratio of each path. */
+    private final Map<String, Double> thresholds = new ConcurrentHashMap<String, Double>();
+    private final Map<String, DiskSpace> gauges = new ConcurrentHashMap<String, DiskSpace>();
+    private final Map<String, Boolean> low = new ConcurrentHashMap<String, Boolean>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a monitor, which samples once started.
+     *
+     * @param period  the time between two samples
+     * @param unit  the unit of the period
+     */
+    public DiskSpaceMonitor(long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        this.period = period;
+        this.unit = unit;
+    }
+
+    /**
+     * Watches the store of a path.
+     *
+     * @param path  the path, not null
+     * @param minUsableRatio  the part of the store, from 0 to 1, under which the
+     *  store is low on space; 0 for never
+     */
+    public void watch(String path, double minUsableRatio) {
+        if (minUsableRatio < 0 || minUsableRatio > 1) {
+            throw new IllegalArgumentException("Ratio must be between 0 and 1: " + minUsableRatio);
+        }
+        thresholds.put(path, Double.valueOf(minUsableRatio));
+    }
+
+    /**
+     * Stops watching the store of a path.
+     *
+     * @param path  the path
+     */
+    public void unwatch(String path) {
+        thresholds.remove(path);
+        gauges.remove(path);
+        low.remove(path);
+    }
+
+    /**
+     * @param listener  the listener to tell of the samples and alerts
+     */
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * @param listener  the listener to remove
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the last sample of each path watched, those not sampled yet left out
+     */
+    public Map<String, DiskSpace> getGauges() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, DiskSpace>(gauges));
+    }
+
+    /**
+     * @param path  a path watched
+     * @return whether the store of the path was low on space at the last sample
+     */
+    public boolean isLow(String path) {
+        return Boolean.TRUE.equals(low.get(path));
+    }
+
+    /**
+     * Starts sampling at once, then every period, on a daemon thread.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "disk-space-monitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    sample();
+                } catch (RuntimeException e) {
+                    // thrown by a listener, which must not cancel the next samples
+                }
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * Stops sampling.
+     */
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Samples every path watched now, on the calling thread.
+     */
+    public void sample() {
+        for (Map.Entry<String, Double> entry : thresholds.entrySet()) {
+            String path = entry.getKey();
+            DiskSpace space;
+            try {
+                space = FileSystemUtils.refresh(path);
+            } catch (IOException | RuntimeException e) {
+                // keep sampling the other paths, and at the next period
+                for (Listener listener : listeners) {
+                    try {
+                        listener.failed(path, e);
+                    } catch (RuntimeException ex) {
+                        listenerFailed(listener, ex);
+                    }
+                }
+                continue;
+            }
+            gauges.put(path, space);
+            boolean isLow = space.getUsableRatio() < entry.getValue().doubleValue();
+            Boolean wasLow = low.put(path, Boolean.valueOf(isLow));
+            boolean crossed = isLow != Boolean.TRUE.equals(wasLow) && (isLow || wasLow != null);
+            // a listener failing does not keep the others from being told
+            for (Listener listener : listeners) {
+                try {
+                    listener.sampled(path, space);
+                } catch (RuntimeException e) {
+                    listenerFailed(listener, e);
+                }
+                if (crossed) {
+                    try {
+                        listener.thresholdCrossed(path, space, isLow);
+                    } catch (RuntimeException e) {
+                        listenerFailed(listener, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void listenerFailed(Listener listener, RuntimeException e) {
+        System.err.println("Disk space listener " + listener + " failed: " + e);
+    }
+
+    /**
+     * Told of the samples of a monitor, on its thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called with each sample.
+         *
+         * @param path  the path watched
+         * @param space  the space of its store
+         */
+        void sampled(String path, DiskSpace space);
+
+        /**
+         * Called when a store goes under its threshold, and when it goes back over it.
+         *
+         * @param path  the path watched
+         * @param space  the space of its store
+         * @param low  whether the store is now low on space
+         */
+        void thresholdCrossed(String path, DiskSpace space, boolean low);
+
+        /**
+         * Called when a store cannot be sampled.
+         *
+         * @param path  the path watched
+         * @param e  the failure
+         */
+        void failed(String path, Exception e);
+    }
+
+}
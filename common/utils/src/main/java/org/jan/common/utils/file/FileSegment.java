@@ -0,0 +1,238 @@
+package org.jan.common.utils.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jan.common.utils.charset.CharsetUtils;
+import org.jan.common.utils.io.BufferPool;
+import org.jan.common.utils.io.IOUtils;
+import org.jan.common.utils.io.LineIterator;
+
+/**
+ * A range of bytes of a file which starts at the beginning of a line and ends
+ * at the end of a line, so that the lines of a large file can be processed by
+ * several threads, each iterating over its own segment.
+ * <p>
+ * Segments are cut after <code>\n</code>, <code>\r\n</code> or a lone
+ * <code>\r</code>, so the encoding must keep those bytes for line ends only,
+ * as ASCII-compatible encodings do.
+ * <pre>
+ * List&lt;FileSegment&gt; segments = FileSegment.split(file, Runtime.getRuntime().availableProcessors());
+ * for (final FileSegment segment : segments) {
+ *     executor.submit(new Callable&lt;Void&gt;() {
+ *         public Void call() throws IOException {
+ *             LineIterator it = segment.lineIterator("UTF-8");
+ *             try {
+ *                 while (it.hasNext()) {
+ *                     String line = it.nextLine();
+ *                     /// do something with line
+ *                 }
+ *             } finally {
+ *                 LineIterator.closeQuietly(it);
+ *             }
+ *             return null;
+ *         }
+ *     });
+ * }
+ * </pre>
+ *
+ * @since 1.0
+ */
+public class FileSegment {
+
+    private static final int SCAN_BUFFER_SIZE = 1024 * 4;
+
+    private final File file;
+    private final long start;
+    private final long end;
+
+    /**
+     * Creates a segment, which is expected to start and end on line boundaries.
+     *
+     * @param file  the file, must not be {@code null}
+     * @param start  the offset of the first byte of the segment
+     * @param end  the offset after the last byte of the segment
+     */
+    public FileSegment(File file, long start, long end) {
+        if (file == null) {
+            throw new NullPointerException("File must not be null");
+        }
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid segment [" + start + ", " + end + ")");
+        }
+        this.file = file;
+        this.start = start;
+        this.end = end;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Splits a file into at most <code>count</code> segments of about the same size,
+     * each one cut at the first line end after its share of the file. A file with
+     * fewer lines than segments requested gives fewer segments, an empty file none.
+     *
+     * @param file  the file to split, must not be {@code null}
+     * @param count  the number of segments wanted, at least 1
+     * @return the segments, in file order
+     * @throws IOException in case of an I/O error
+     */
+    public static List<FileSegment> split(File file, int count) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("Segment count must be at least 1: " + count);
+        }
+        FileInputStream in = FileUtils.openInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            List<FileSegment> segments = new ArrayList<FileSegment>(count);
+            BufferPool pool = BufferPool.getDefault();
+            ByteBuffer buffer = pool.acquireBuffer(SCAN_BUFFER_SIZE, false);
+            try {
+                long start = 0;
+                for (int i = 1; i < count && start < size; i++) {
+                    long target = Math.max(start, size / count * i);
+                    long end = nextLineStart(channel, target, size, buffer);
+                    if (end > start && end < size) {
+                        segments.add(new FileSegment(file, start, end));
+                        start = end;
+                    }
+                }
+                segments.add(new FileSegment(file, start, size));
+            } finally {
+                pool.release(buffer);
+            }
+            return segments;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /*
+     * Finds the start of the first line beginning at or after the offset,
+     * or the size of the file if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long offset, long size, ByteBuffer buffer) throws IOException {
+        // the byte before the offset may already end a line
+        long position = Math.max(0, offset - 1);
+        boolean afterCR = false;
+        while (position < size) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++, position++) {
+                byte b = buffer.get(i);
+                if (afterCR) {
+                    return b == '\n' ? position + 1 : position;
+                }
+                if (b == '\n') {
+                    return position + 1;
+                }
+                afterCR = b == '\r';
+            }
+        }
+        return size;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the offset of the first byte of the segment
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the offset after the last byte of the segment
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return the size of the segment in bytes
+     */
+    public long length() {
+        return end - start;
+    }
+
+    /**
+     * Returns an iterator over the lines of the segment, which must be closed.
+     *
+     * @param encoding  the encoding of the file, null means platform default
+     * @return the lines of the segment
+     * @throws IOException if the file cannot be opened
+     */
+    public LineIterator lineIterator(String encoding) throws IOException {
+        FileInputStream in = FileUtils.openInputStream(file);
+        return new LineIterator(new SegmentChannel(in.getChannel(), start, end), CharsetUtils.toCharset(encoding));
+    }
+
+    @Override
+    public String toString() {
+        return file + "[" + start + ", " + end + ")";
+    }
+
+    /**
+     * Reads the bytes of the segment only.
+     */
+    private static class SegmentChannel implements ReadableByteChannel {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        SegmentChannel(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            long remaining = end - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int limit = dst.limit();
+            if (dst.remaining() > remaining) {
+                dst.limit(dst.position() + (int) remaining);
+            }
+            try {
+                int n = channel.read(dst, position);
+                if (n > 0) {
+                    position += n;
+                }
+                return n;
+            } finally {
+                dst.limit(limit);
+            }
+        }
+
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+}
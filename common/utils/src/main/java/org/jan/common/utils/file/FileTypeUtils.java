@@ -17,11 +17,17 @@ package org.jan.common.utils.file;
  */
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+
+import org.jan.common.utils.io.BufferPool;
 
 /**
  * file type judge
  */
 public final class FileTypeUtils {
+
+    private static final int HEAD_LENGTH = 28;
+
     /*
      * Constructor
      */
@@ -31,14 +37,15 @@ public final class FileTypeUtils {
      * convert file head to hex
      *
      * @param array of bytes
+     * @param length of the head
      * @return
      */
-    private static String bytesToHexString(byte[] src){
-        if (null == src || src.length == 0)
+    private static String bytesToHexString(byte[] src, int length){
+        if (null == src || length == 0)
             return null;
-        StringBuilder sb = new StringBuilder();
-        for (byte b : src) {
-            String hv = Integer.toHexString(b & 0xFF);
+        StringBuilder sb = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            String hv = Integer.toHexString(src[i] & 0xFF);
             if (hv.length() < 2)
                 sb.append(0);
             sb.append(hv);
@@ -53,13 +60,17 @@ public final class FileTypeUtils {
      * @throws IOException
      */
     private static String getFileContent(InputStream inputStream) {
-        byte[] bytes = new byte[28];
+        BufferPool pool = BufferPool.getDefault();
+        byte[] bytes = pool.acquire(HEAD_LENGTH);
         try {
-            inputStream.read(bytes, 0, 28);
+            Arrays.fill(bytes, 0, HEAD_LENGTH, (byte) 0);
+            inputStream.read(bytes, 0, HEAD_LENGTH);
+            return bytesToHexString(bytes, HEAD_LENGTH);
         } catch (IOException e) {
             throw new RuntimeException("read file content error!");
+        } finally {
+            pool.release(bytes);
         }
-        return bytesToHexString(bytes);
     }
     /**
      *
@@ -18,6 +18,7 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
@@ -30,6 +31,7 @@ import java.util.zip.Checksum;
 
 import org.jan.common.utils.charset.CharsetUtils;
 import org.jan.common.utils.io.IOUtils;
+import org.jan.common.utils.io.LineIterator;
 
 /**
  * General file manipulation utilities.
@@ -847,6 +849,29 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Copy bytes from a <code>File</code> to a <code>WritableByteChannel</code>.
+     * <p>
+     * The bytes are handed over with {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+     * so a copy to a <code>SocketChannel</code> or another <code>FileChannel</code>
+     * can be made by the operating system without going through the heap.
+     *
+     * @param input  the <code>File</code> to read from
+     * @param output  the blocking <code>WritableByteChannel</code> to write to
+     * @return the number of bytes copied
+     * @throws NullPointerException if the input or output is null
+     * @throws IOException if an I/O error occurs
+     * @since 1.0
+     */
+    public static long copyFile(File input, WritableByteChannel output) throws IOException {
+        final FileInputStream fis = new FileInputStream(input);
+        try {
+            return IOUtils.copyLarge(fis.getChannel(), output);
+        } finally {
+            fis.close();
+        }
+    }
+
     /**
      * Internal copy file method.
      *
@@ -874,7 +899,11 @@ public class FileUtils {
             long count = 0;
             while (pos < size) {
                 count = size - pos > FILE_COPY_BUFFER_SIZE ? FILE_COPY_BUFFER_SIZE : size - pos;
-                pos += output.transferFrom(input, pos, count);
+                count = output.transferFrom(input, pos, count);
+                if (count <= 0) {
+                    break; // source truncated, reported below
+                }
+                pos += count;
             }
         } finally {
             IOUtils.closeQuietly(output);
@@ -985,6 +1014,7 @@ public class FileUtils {
      * @throws IOException if source or destination is invalid
      * @throws IOException if an IO error occurs during copying
      * @since 1.0
+     * @see ParallelFileWalker
      */
     public static void copyDirectory(File srcDir, File destDir,
             boolean preserveFileDate) throws IOException {
@@ -1255,6 +1285,7 @@ public class FileUtils {
      *
      * @param directory  directory to delete
      * @throws IOException in case deletion is unsuccessful
+     * @see ParallelFileWalker
      */
     public static void deleteDirectory(File directory) throws IOException {
         if (!directory.exists()) {
@@ -1360,6 +1391,7 @@ public class FileUtils {
      *
      * @param directory directory to clean
      * @throws IOException in case cleaning is unsuccessful
+     * @see ParallelFileWalker
      */
     public static void cleanDirectory(File directory) throws IOException {
         if (!directory.exists()) {
@@ -1402,6 +1434,7 @@ public class FileUtils {
      * @param seconds  the maximum time in seconds to wait
      * @return true if file exists
      * @throws NullPointerException if the file is {@code null}
+     * @see FileWatcher
      */
     public static boolean waitFor(File file, int seconds) {
         int timeout = 0;
@@ -1549,6 +1582,64 @@ public class FileUtils {
         return readLines(file, Charset.defaultCharset());
     }
 
+    /**
+     * Returns an Iterator for the lines in a <code>File</code>, read as the
+     * iterator is advanced rather than all at once as by {@link #readLines(File, String)}.
+     * <p>
+     * The iterator must be closed to release the file:
+     * <pre>
+     * LineIterator it = FileUtils.lineIterator(file, "UTF-8");
+     * try {
+     *     while (it.hasNext()) {
+     *         String line = it.nextLine();
+     *         /// do something with line
+     *     }
+     * } finally {
+     *     LineIterator.closeQuietly(it);
+     * }
+     * </pre>
+     *
+     * @param file  the file to open for input, must not be {@code null}
+     * @param encoding  the encoding to use, {@code null} means platform default
+     * @return an Iterator of the lines in the file, never {@code null}
+     * @throws IOException in case of an I/O error (file closed)
+     * @see FileSegment
+     * @since 1.0
+     */
+    public static LineIterator lineIterator(File file, String encoding) throws IOException {
+        FileInputStream in = openInputStream(file);
+        return new LineIterator(in.getChannel(), CharsetUtils.toCharset(encoding));
+    }
+
+    /**
+     * Returns an Iterator for the lines in a <code>File</code> using the default encoding for the VM.
+     *
+     * @param file  the file to open for input, must not be {@code null}
+     * @return an Iterator of the lines in the file, never {@code null}
+     * @throws IOException in case of an I/O error (file closed)
+     * @see #lineIterator(File, String)
+     * @since 1.0
+     */
+    public static LineIterator lineIterator(File file) throws IOException {
+        return lineIterator(file, null);
+    }
+
+    /**
+     * Maps a file into memory for reading, without copying it to the heap
+     * as the <code>readXxx</code> methods do. Files over 2GB are mapped in windows.
+     * <p>
+     * The <code>MappedFile</code> must be closed once read.
+     *
+     * @param file  the file to map, must not be {@code null}
+     * @return the mapped file
+     * @throws IOException in case of an I/O error
+     * @see MappedFile
+     * @since 1.0
+     */
+    public static MappedFile mapFile(File file) throws IOException {
+        return new MappedFile(file);
+    }
+
     //-----------------------------------------------------------------------
     /**
      * Writes a String to a file creating the file if it does not exist.
@@ -2135,6 +2226,7 @@ public class FileUtils {
      *         is greater than {@link Long#MAX_VALUE}.
      * @throws NullPointerException
      *             if the directory is {@code null}
+     * @see ParallelFileWalker
      */
     public static long sizeOfDirectory(File directory) {
         checkDirectory(directory);
@@ -2221,6 +2313,7 @@ public class FileUtils {
      * recently than the reference <code>File</code>
      * @throws IllegalArgumentException if the file is {@code null}
      * @throws IllegalArgumentException if the reference file is {@code null} or doesn't exist
+     * @see FileWatcher
      */
      public static boolean isFileNewer(File file, File reference) {
         if (reference == null) {
@@ -2288,6 +2381,7 @@ public class FileUtils {
      * the reference <code>File</code>
      * @throws IllegalArgumentException if the file is {@code null}
      * @throws IllegalArgumentException if the reference file is {@code null} or doesn't exist
+     * @see FileWatcher
      */
      public static boolean isFileOlder(File file, File reference) {
         if (reference == null) {
@@ -2352,6 +2446,8 @@ public class FileUtils {
      * @throws IllegalArgumentException if the file is a directory
      * @throws IOException if an IO error occurs reading the file
      * @since 1.0
+     * @see ParallelFileWalker
+     * @see ChecksumEngine
      */
     public static long checksumCRC32(File file) throws IOException {
         CRC32 crc = new CRC32();
@@ -2375,6 +2471,7 @@ public class FileUtils {
      * @throws IllegalArgumentException if the file is a directory
      * @throws IOException if an IO error occurs reading the file
      * @since 1.0
+     * @see ChecksumEngine
      */
     public static Checksum checksum(File file, Checksum checksum) throws IOException {
         if (file.isDirectory()) {
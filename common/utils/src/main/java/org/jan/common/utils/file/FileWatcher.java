@@ -0,0 +1,564 @@
+package org.jan.common.utils.file;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches files and directory trees for changes, delivering them to its
+ * listeners in batches, all on one thread.
+ * <p>
+ * The changes are taken from the <code>WatchService</code> of the file system,
+ * so the watcher thread sleeps until the system tells of a change. Where the
+ * file system has none, the watcher falls back on listing the directories
+ * watched every poll interval, comparing the last modified time and the size
+ * of each file with those of the previous listing.
+ * <p>
+ * The changes are debounced: a batch is delivered once no change came for the
+ * debounce time, or at the latest {@value #MAX_DELAY_FACTOR} times the debounce
+ * time after its first change, so that a file written in many steps is seen
+ * once. The changes of a file in a batch are coalesced into one: a file
+ * created then modified is created, a file created then deleted is left out.
+ * <pre>
+ * FileWatcher watcher = new FileWatcher(100, TimeUnit.MILLISECONDS);
+ * watcher.watch(new File("conf/app.properties"), false, new FileWatcher.Listener() {
+ *     public void changed(List&lt;FileWatcher.Change&gt; changes) {
+ *         reload();
+ *     }
+ * });
+ * watcher.start();
+ * </pre>
+ * The directories registered for a listener removed stay registered until the
+ * watcher is closed.
+ *
+ * @see FileUtils#waitFor(File, int)
+ * @since 1.0
+ */
+public class FileWatcher implements Closeable {
+
+    /** The default interval of the polling fallback, in milliseconds. */
+    public static final long DEFAULT_POLL_INTERVAL = 1000;
+
+    /** The latest a batch is delivered after its first change, in debounce times. */
+    public static final int MAX_DELAY_FACTOR = 10;
+
+    private final long debounce;
+    private final long pollInterval;
+    /** Null when polling. */
+    private final WatchService service;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+    /** The directories registered, and whether their new subdirectories are. */
+    private final Map<Path, Boolean> directories = new ConcurrentHashMap<Path, Boolean>();
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<WatchKey, Path>();
+    /** The last listing of each directory, when polling. */
+    private final Map<Path, Map<Path, long[]>> listings = new HashMap<Path, Map<Path, long[]>>();
+
+    /** The changes of the next batch, touched by the watcher thread only. */
+    private final Map<Path, Kind> pending = new LinkedHashMap<Path, Kind>();
+    private long firstChange;
+    private long lastChange;
+
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Creates a watcher on the <code>WatchService</code> of the default file
+     * system, polling where it has none, which watches once started.
+     *
+     * @param debounce  the time without change closing a batch
+     * @param unit  the unit of the debounce time
+     * @throws IOException if the watch service cannot be opened
+     */
+    public FileWatcher(long debounce, TimeUnit unit) throws IOException {
+        this(debounce, unit, false, DEFAULT_POLL_INTERVAL);
+    }
+
+    /**
+     * Creates a watcher, which watches once started.
+     *
+     * @param debounce  the time without change closing a batch
+     * @param unit  the unit of the debounce time
+     * @param polling  whether to poll even if the file system has a <code>WatchService</code>,
+     *  for network file systems, whose changes made by other hosts it misses
+     * @param pollInterval  the time between two listings, in milliseconds, when polling
+     * @throws IOException if the watch service cannot be opened
+     */
+    public FileWatcher(long debounce, TimeUnit unit, boolean polling, long pollInterval) throws IOException {
+        if (debounce < 0) {
+            throw new IllegalArgumentException("Debounce must not be negative: " + debounce);
+        }
+        if (pollInterval <= 0) {
+            throw new IllegalArgumentException("Poll interval must be positive: " + pollInterval);
+        }
+        this.debounce = unit.toMillis(debounce);
+        this.pollInterval = pollInterval;
+        WatchService watchService = null;
+        if (!polling) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+            } catch (UnsupportedOperationException e) {
+                // polled
+            }
+        }
+        this.service = watchService;
+    }
+
+    /**
+     * @return whether this watcher lists the directories, the file system having no <code>WatchService</code>
+     */
+    public boolean isPolling() {
+        return service == null;
+    }
+
+    /**
+     * Watches a file or a directory for a listener. A file is watched through its
+     * directory, so it may not exist yet; a directory must exist.
+     *
+     * @param file  the file or directory, not null
+     * @param recursive  whether to watch the whole tree of a directory, its
+     *  subdirectories created later included, or its entries only
+     * @param listener  the listener to tell of the changes
+     * @throws IOException if the directory cannot be registered
+     */
+    public void watch(File file, boolean recursive, Listener listener) throws IOException {
+        Path path = file.getAbsoluteFile().toPath().normalize();
+        boolean directory = Files.isDirectory(path);
+        if (directory) {
+            register(path, recursive, false);
+        } else {
+            Path parent = path.getParent();
+            if (parent == null || !Files.isDirectory(parent)) {
+                throw new IOException("Directory '" + parent + "' does not exist");
+            }
+            register(parent, false, false);
+        }
+        subscriptions.add(new Subscription(path, directory, recursive, listener));
+    }
+
+    /**
+     * Stops telling a listener of changes.
+     *
+     * @param listener  the listener to remove
+     */
+    public void unwatch(Listener listener) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.listener == listener) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * Starts watching, on a daemon thread.
+     */
+    public synchronized void start() {
+        if (thread != null || closed) {
+            return;
+        }
+        thread = new Thread(new Runnable() {
+            public void run() {
+                loop();
+            }
+        }, "file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching, dropping the changes not delivered yet.
+     */
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    /*
+     * Registers a directory, and its subdirectories if recursive. Those not
+     * registered at once have their entries reported as created.
+     */
+    private void register(Path directory, final boolean recursive, final boolean created) throws IOException {
+        if (!recursive) {
+            registerDirectory(directory, false, created);
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                registerDirectory(dir, true, created);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void registerDirectory(Path directory, boolean recursive, boolean created) throws IOException {
+        Boolean registered = directories.get(directory);
+        if (registered != null && (registered.booleanValue() || !recursive)) {
+            return;
+        }
+        directories.put(directory, Boolean.valueOf(recursive));
+        if (registered != null) {
+            return; // now recursive
+        }
+        if (service != null) {
+            keys.put(directory.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+            if (created) {
+                // created before being registered
+                DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+                try {
+                    for (Path entry : stream) {
+                        change(entry, Kind.CREATED);
+                    }
+                } finally {
+                    stream.close();
+                }
+            }
+        } else {
+            synchronized (listings) {
+                listings.put(directory, created ? new HashMap<Path, long[]>() : list(directory));
+            }
+        }
+    }
+
+    /*
+     * The loop of the watcher thread.
+     */
+    private void loop() {
+        long nextPoll = System.currentTimeMillis() + pollInterval;
+        try {
+            while (!closed) {
+                long now = System.currentTimeMillis();
+                long wait = pending.isEmpty() ? Long.MAX_VALUE
+                        : Math.min(lastChange + debounce, firstChange + debounce * MAX_DELAY_FACTOR) - now;
+                if (service != null) {
+                    WatchKey key = wait == Long.MAX_VALUE ? service.take()
+                            : service.poll(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+                    while (key != null) {
+                        take(key);
+                        key = service.poll();
+                    }
+                } else {
+                    wait = Math.min(wait, nextPoll - now);
+                    if (wait > 0) {
+                        Thread.sleep(wait);
+                    }
+                    if (System.currentTimeMillis() >= nextPoll) {
+                        poll();
+                        nextPoll = System.currentTimeMillis() + pollInterval;
+                    }
+                }
+                now = System.currentTimeMillis();
+                if (!pending.isEmpty()
+                        && (now >= lastChange + debounce || now >= firstChange + debounce * MAX_DELAY_FACTOR)) {
+                    deliver();
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /*
+     * Takes the events of a key.
+     */
+    private void take(WatchKey key) {
+        Path directory = keys.get(key);
+        if (directory == null) {
+            key.cancel();
+            return;
+        }
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                change(directory, Kind.OVERFLOW);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE) {
+                change(path, Kind.CREATED);
+                if (Boolean.TRUE.equals(directories.get(directory))
+                        && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    try {
+                        register(path, true, true);
+                    } catch (IOException e) {
+                        // deleted already, or its changes are missed
+                        change(path, Kind.OVERFLOW);
+                    }
+                }
+            } else if (event.kind() == ENTRY_DELETE) {
+                change(path, Kind.DELETED);
+            } else if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                // the modifications of a directory are those of its entries
+                change(path, Kind.MODIFIED);
+            }
+        }
+        if (!key.reset()) {
+            // the directory is gone
+            keys.remove(key);
+            directories.remove(directory);
+        }
+    }
+
+    /*
+     * Lists the directories registered, comparing each with its last listing.
+     */
+    private void poll() {
+        synchronized (listings) {
+            for (Iterator<Map.Entry<Path, Map<Path, long[]>>> it = listings.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Path, Map<Path, long[]>> entry = it.next();
+                Path directory = entry.getKey();
+                Map<Path, long[]> previous = entry.getValue();
+                Map<Path, long[]> current;
+                try {
+                    current = list(directory);
+                } catch (IOException e) {
+                    // the directory is gone
+                    for (Path path : previous.keySet()) {
+                        change(path, Kind.DELETED);
+                    }
+                    it.remove();
+                    directories.remove(directory);
+                    continue;
+                }
+                for (Map.Entry<Path, long[]> file : current.entrySet()) {
+                    long[] before = previous.get(file.getKey());
+                    long[] after = file.getValue();
+                    if (before == null) {
+                        change(file.getKey(), Kind.CREATED);
+                    } else if (before[0] != after[0] || before[1] != after[1]) {
+                        change(file.getKey(), Kind.MODIFIED);
+                    }
+                }
+                for (Path path : previous.keySet()) {
+                    if (!current.containsKey(path)) {
+                        change(path, Kind.DELETED);
+                    }
+                }
+                entry.setValue(current);
+            }
+        }
+        // registered out of the iteration
+        for (Map.Entry<Path, Kind> change : new ArrayList<Map.Entry<Path, Kind>>(pending.entrySet())) {
+            Path path = change.getKey();
+            if (change.getValue() == Kind.CREATED && !directories.containsKey(path)
+                    && Boolean.TRUE.equals(directories.get(path.getParent()))
+                    && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    register(path, true, true);
+                } catch (IOException e) {
+                    change(path, Kind.OVERFLOW);
+                }
+            }
+        }
+    }
+
+    /*
+     * Lists a directory: the last modified time and size of each file, -1 for the subdirectories.
+     */
+    private static Map<Path, long[]> list(Path directory) throws IOException {
+        Map<Path, long[]> listing = new HashMap<Path, long[]>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+        try {
+            for (Path entry : stream) {
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue; // deleted while listed
+                }
+                listing.put(entry, attrs.isDirectory() ? new long[] {-1, -1}
+                        : new long[] {attrs.lastModifiedTime().toMillis(), attrs.size()});
+            }
+        } finally {
+            stream.close();
+        }
+        return listing;
+    }
+
+    /*
+     * Adds a change to the next batch, coalescing it with the previous change of the file.
+     */
+    private void change(Path path, Kind kind) {
+        long now = System.currentTimeMillis();
+        if (pending.isEmpty()) {
+            firstChange = now;
+        }
+        lastChange = now;
+        Kind previous = pending.remove(path);
+        Kind coalesced = previous == null ? kind : previous.then(kind);
+        if (coalesced != null) {
+            pending.put(path, coalesced);
+        }
+    }
+
+    /*
+     * Delivers the batch to the listeners of the files changed.
+     */
+    private void deliver() {
+        List<Change> changes = new ArrayList<Change>(pending.size());
+        for (Map.Entry<Path, Kind> entry : pending.entrySet()) {
+            changes.add(new Change(entry.getValue(), entry.getKey()));
+        }
+        pending.clear();
+        for (Subscription subscription : subscriptions) {
+            List<Change> matched = new ArrayList<Change>();
+            for (Change change : changes) {
+                if (subscription.matches(change)) {
+                    matched.add(change);
+                }
+            }
+            if (!matched.isEmpty()) {
+                try {
+                    subscription.listener.changed(Collections.unmodifiableList(matched));
+                } catch (RuntimeException e) {
+                    // thrown by a listener, which must not stop the watcher
+                }
+            }
+        }
+    }
+
+    /**
+     * Told of the changes of the files it watches, on the watcher thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called with each batch of changes of the files watched.
+         *
+         * @param changes  the changes, one per file, in the order of their first change
+         */
+        void changed(List<Change> changes);
+    }
+
+    /**
+     * The kinds of change of a file.
+     */
+    public enum Kind {
+
+        /** The file was created. */
+        CREATED,
+
+        /** The file was modified. */
+        MODIFIED,
+
+        /** The file was deleted. */
+        DELETED,
+
+        /** Changes of the directory were lost, so it should be listed again. */
+        OVERFLOW;
+
+        /*
+         * Coalesces this change with the next one, null if they cancel out.
+         */
+        Kind then(Kind next) {
+            if (this == OVERFLOW || next == OVERFLOW) {
+                return OVERFLOW;
+            }
+            switch (this) {
+                case CREATED:
+                    return next == DELETED ? null : CREATED;
+                case MODIFIED:
+                    return next == DELETED ? DELETED : MODIFIED;
+                default:
+                    return next == DELETED ? DELETED : MODIFIED;
+            }
+        }
+    }
+
+    /**
+     * A change of a file.
+     */
+    public static class Change {
+
+        private final Kind kind;
+        private final Path path;
+
+        Change(Kind kind, Path path) {
+            this.kind = kind;
+            this.path = path;
+        }
+
+        /**
+         * @return the kind of change
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the file changed, the directory for an overflow
+         */
+        public File getFile() {
+            return path.toFile();
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + path;
+        }
+    }
+
+    /**
+     * A listener and the file or directory it watches.
+     */
+    private static class Subscription {
+
+        private final Path path;
+        private final boolean directory;
+        private final boolean recursive;
+        private final Listener listener;
+
+        Subscription(Path path, boolean directory, boolean recursive, Listener listener) {
+            this.path = path;
+            this.directory = directory;
+            this.recursive = recursive;
+            this.listener = listener;
+        }
+
+        boolean matches(Change change) {
+            Path changed = change.path;
+            if (change.kind == Kind.OVERFLOW) {
+                // lost changes of the directory, or of those it is in
+                return path.startsWith(changed) || directory && recursive && changed.startsWith(path);
+            }
+            if (!directory || changed.equals(path)) {
+                return changed.equals(path);
+            }
+            return recursive ? changed.startsWith(path) : path.equals(changed.getParent());
+        }
+    }
+
+}
@@ -0,0 +1,389 @@
+package org.jan.common.utils.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.jan.common.utils.charset.CharsetUtils;
+import org.jan.common.utils.io.IOUtils;
+
+/**
+ * A file mapped into memory for reading, in windows of at most
+ * {@link #DEFAULT_WINDOW_SIZE} bytes so that files over 2GB can be mapped too.
+ * <p>
+ * The content is read through the page cache without being copied to the heap:
+ * {@link #getWindow(int)} returns a read-only <code>ByteBuffer</code> over a window,
+ * {@link #asCharSequence(int)} a <code>CharSequence</code> over a window of single
+ * byte text (for regular expressions over logs), and {@link #lineIterator(String)}
+ * decodes the lines one at a time, so scanning a file of any size takes a constant
+ * amount of heap besides the lines kept by the caller.
+ * <p>
+ * Windows are mapped on first use. {@link #close()} releases them where the JVM
+ * allows it; otherwise they are released when garbage collected, and the buffers
+ * must not be used after closing.
+ * <pre>
+ * MappedFile file = new MappedFile(new File("access.log"));
+ * try {
+ *     Iterator&lt;String&gt; it = file.lineIterator("UTF-8");
+ *     while (it.hasNext()) {
+ *         String line = it.next();
+ *         /// do something with line
+ *     }
+ * } finally {
+ *     file.close();
+ * }
+ * </pre>
+ *
+ * @since 1.0
+ */
+public class MappedFile implements Closeable {
+
+    /**
+     * The default size of a window, 1GB.
+     */
+    public static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final MappedByteBuffer[] windows;
+
+    /**
+     * Opens a file to map it in windows of the default size.
+     *
+     * @param file  the file to map, must not be {@code null}
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedFile(File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a file to map it in windows of the specified size.
+     *
+     * @param file  the file to map, must not be {@code null}
+     * @param windowSize  the size of the windows, between 1 and <code>Integer.MAX_VALUE</code>
+     * @throws IOException if the file cannot be opened
+     */
+    public MappedFile(File file, long windowSize) throws IOException {
+        if (windowSize < 1 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window size out of range: " + windowSize);
+        }
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        this.channel = raf.getChannel();
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        long count = (size + windowSize - 1) / windowSize;
+        if (count > Integer.MAX_VALUE) {
+            IOUtils.closeQuietly(raf);
+            throw new IllegalArgumentException("Window size too small for " + file + ": " + windowSize);
+        }
+        this.windows = new MappedByteBuffer[(int) count];
+    }
+
+    /**
+     * @return the mapped file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the size of the file when it was opened
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of windows the file is mapped in, 0 for an empty file
+     */
+    public int getWindowCount() {
+        return windows.length;
+    }
+
+    /**
+     * @param index  the index of the window
+     * @return the offset in the file of the first byte of the window
+     */
+    public long getWindowPosition(int index) {
+        return index * windowSize;
+    }
+
+    /**
+     * Returns a read-only view of a window, positioned at its start.
+     * Each call returns a new buffer sharing the mapped content.
+     *
+     * @param index  the index of the window, from 0 to {@link #getWindowCount()} - 1
+     * @return the window
+     * @throws IOException if the window cannot be mapped
+     */
+    public ByteBuffer getWindow(int index) throws IOException {
+        return map(index).duplicate();
+    }
+
+    /**
+     * Returns a read-only view of the whole file.
+     *
+     * @return the content of the file
+     * @throws IOException if the file is over one window and cannot be viewed at once,
+     *  or cannot be mapped
+     */
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (windows.length == 0) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        if (windows.length > 1) {
+            throw new IOException("File '" + file + "' is larger than one window of " + windowSize + " bytes");
+        }
+        return getWindow(0);
+    }
+
+    /**
+     * Returns a window as characters, one per byte (ISO-8859-1), which is exact
+     * for single byte text and keeps the ASCII characters of UTF-8 text in place.
+     *
+     * @param index  the index of the window
+     * @return the characters of the window
+     * @throws IOException if the window cannot be mapped
+     */
+    public CharSequence asCharSequence(int index) throws IOException {
+        ByteBuffer window = getWindow(index);
+        return new ByteCharSequence(window, 0, window.limit());
+    }
+
+    /**
+     * Returns an iterator over the lines of the file, decoded as they are read.
+     * Lines end with <code>\n</code> or <code>\r\n</code>, so the encoding must
+     * keep those bytes for line ends only, as ASCII-compatible encodings do.
+     *
+     * @param encoding  the encoding of the file, null means platform default
+     * @return the lines of the file
+     */
+    public Iterator<String> lineIterator(String encoding) {
+        return new MappedLineIterator(CharsetUtils.toCharset(encoding));
+    }
+
+    /**
+     * Releases the mapped windows and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i] != null) {
+                unmap(windows[i]);
+                windows[i] = null;
+            }
+        }
+        raf.close();
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        MappedByteBuffer window = windows[index];
+        if (window == null) {
+            long position = getWindowPosition(index);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+            windows[index] = window;
+        }
+        return window;
+    }
+
+    /*
+     * Unmaps a buffer at once instead of waiting for the garbage collector,
+     * where the JVM exposes its cleaner.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            // left to the garbage collector
+        }
+    }
+
+    /**
+     * Bytes as ISO-8859-1 characters.
+     */
+    private static class ByteCharSequence implements CharSequence {
+
+        private final ByteBuffer bytes;
+        private final int offset;
+        private final int length;
+
+        ByteCharSequence(ByteBuffer bytes, int offset, int length) {
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return (char) (bytes.get(offset + index) & 0xff);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException(start + ", " + end);
+            }
+            return new ByteCharSequence(bytes, offset + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) (bytes.get(offset + i) & 0xff);
+            }
+            return new String(chars);
+        }
+    }
+
+    /**
+     * Finds the line ends in the mapped bytes and decodes one line at a time,
+     * reusing its decoder and char buffer. A line spanning two windows is
+     * assembled in a small heap buffer.
+     */
+    private class MappedLineIterator implements Iterator<String> {
+
+        private final CharsetDecoder decoder;
+        private CharBuffer chars = CharBuffer.allocate(256);
+        private ByteBuffer carry;
+        private ByteBuffer window;
+        private int windowIndex = -1;
+        private String next;
+        private boolean finished;
+
+        MappedLineIterator(Charset charset) {
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = readLine();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                finished = next == null;
+            }
+            return next != null;
+        }
+
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more lines");
+            }
+            String line = next;
+            next = null;
+            return line;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Remove unsupported on MappedFile line iterator");
+        }
+
+        private String readLine() throws IOException {
+            while (true) {
+                if (window == null || !window.hasRemaining()) {
+                    if (windowIndex + 1 >= windows.length) {
+                        // last line without a line end
+                        return carry != null && carry.position() > 0 ? decode(flipCarry()) : null;
+                    }
+                    window = getWindow(++windowIndex);
+                }
+                int start = window.position();
+                int limit = window.limit();
+                int end = start;
+                while (end < limit && window.get(end) != LF) {
+                    end++;
+                }
+                if (end == limit) {
+                    // the line goes on in the next window
+                    appendCarry(window, start, limit);
+                    window.position(limit);
+                    continue;
+                }
+                window.position(end + 1);
+                if (carry != null && carry.position() > 0) {
+                    appendCarry(window, start, end);
+                    return decode(flipCarry());
+                }
+                ByteBuffer line = window.duplicate();
+                line.position(start);
+                line.limit(end);
+                return decode(line);
+            }
+        }
+
+        private void appendCarry(ByteBuffer source, int start, int end) {
+            int length = end - start;
+            if (carry == null) {
+                carry = ByteBuffer.allocate(Math.max(256, length));
+            } else if (carry.remaining() < length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(carry.capacity() * 2, carry.position() + length));
+                carry.flip();
+                larger.put(carry);
+                carry = larger;
+            }
+            ByteBuffer part = source.duplicate();
+            part.position(start);
+            part.limit(end);
+            carry.put(part);
+        }
+
+        private ByteBuffer flipCarry() {
+            ByteBuffer line = ByteBuffer.wrap(carry.array(), 0, carry.position());
+            carry.clear();
+            return line;
+        }
+
+        private String decode(ByteBuffer line) throws CharacterCodingException {
+            if (line.hasRemaining() && line.get(line.limit() - 1) == CR) {
+                line.limit(line.limit() - 1);
+            }
+            int capacity = (int) (line.remaining() * (double) decoder.maxCharsPerByte()) + 1;
+            if (chars.capacity() < capacity) {
+                chars = CharBuffer.allocate(capacity);
+            }
+            chars.clear();
+            decoder.reset();
+            decoder.decode(line, chars, true);
+            decoder.flush(chars);
+            chars.flip();
+            return chars.toString();
+        }
+    }
+
+}
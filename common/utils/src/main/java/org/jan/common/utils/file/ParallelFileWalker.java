@@ -0,0 +1,422 @@
+package org.jan.common.utils.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.CRC32;
+
+import org.jan.common.utils.io.BufferPool;
+import org.jan.common.utils.io.IOUtils;
+
+/**
+ * Walks directory trees with a fork/join pool, each directory being listed
+ * by a task of its own, for the operations of {@link FileUtils} over whole
+ * trees: size, copy, delete and checksum.
+ * <p>
+ * Directories are listed with a <code>DirectoryStream</code> and each entry is
+ * stat'ed once, through its <code>BasicFileAttributes</code>, where the
+ * <code>File</code> based methods of {@link FileUtils} ask for the type, size
+ * and date of an entry in separate calls. Symbolic links are not followed.
+ * <p>
+ * The walker owns its pool, so it should be kept for many walks and closed at
+ * the end:
+ * <pre>
+ * ParallelFileWalker walker = new ParallelFileWalker(16);
+ * try {
+ *     long size = walker.sizeOf(directory);
+ * } finally {
+ *     walker.close();
+ * }
+ * </pre>
+ * The parallelism suited to a tree depends on the storage more than on the
+ * processors: a network or flash volume serves many more concurrent requests
+ * than a single disk.
+ *
+ * @since 1.0
+ */
+public class ParallelFileWalker implements Closeable {
+
+    /**
+     * Files from this size are checksummed or copied by tasks of their own.
+     */
+    private static final long FORK_FILE_SIZE = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 1024 * 8;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Comparator<Path> BY_NAME = new Comparator<Path>() {
+        public int compare(Path p1, Path p2) {
+            return p1.getFileName().toString().compareTo(p2.getFileName().toString());
+        }
+    };
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a walker with a parallelism equal to the number of processors.
+     */
+    public ParallelFileWalker() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a walker.
+     *
+     * @param parallelism  the number of threads walking at once, at least 1
+     */
+    public ParallelFileWalker(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * @return the number of threads walking at once
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Counts the size of a directory recursively (sum of the length of all files).
+     *
+     * @param directory  the directory to inspect, must not be {@code null}
+     * @return size of the directory in bytes, 0 if the directory is empty
+     * @throws IllegalArgumentException if the directory does not exist or is not a directory
+     * @throws IOException if a directory cannot be read
+     * @see FileUtils#sizeOfDirectory(File)
+     */
+    public long sizeOf(File directory) throws IOException {
+        return walk(directory, new Operation<Long>(false) {
+            @Override
+            Long visitFile(Path file, BasicFileAttributes attrs) {
+                return attrs.isSymbolicLink() ? 0L : attrs.size();
+            }
+
+            @Override
+            Long postVisitDirectory(Path dir, List<Path> entries, List<Long> results) {
+                long size = 0;
+                for (Long result : results) {
+                    size += result;
+                }
+                return size;
+            }
+        });
+    }
+
+    /**
+     * Copies a whole directory to a new location. The destination directory
+     * is created if it does not exist, files in it are overwritten.
+     *
+     * @param srcDir  an existing directory to copy, must not be {@code null}
+     * @param destDir  the new directory, must not be {@code null}
+     * @param preserveFileDate  true if the file dates of the copies should be
+     *  the same as the originals
+     * @throws IllegalArgumentException if the source does not exist or is not a directory
+     * @throws IOException if the destination is inside the source, or an IO
+     *  error occurs during copying
+     * @see FileUtils#copyDirectory(File, File, boolean)
+     */
+    public void copyDirectory(File srcDir, File destDir, final boolean preserveFileDate) throws IOException {
+        if (destDir == null) {
+            throw new NullPointerException("Destination must not be null");
+        }
+        final Path source = srcDir.toPath();
+        final Path target = destDir.toPath();
+        if (destDir.getCanonicalPath().startsWith(srcDir.getCanonicalPath() + File.separator)) {
+            throw new IOException("Destination '" + destDir + "' is inside source '" + srcDir + "'");
+        }
+        walk(srcDir, new Operation<Void>(false) {
+            @Override
+            void preVisitDirectory(Path dir) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+            }
+
+            @Override
+            Void visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path copy = target.resolve(source.relativize(file));
+                if (preserveFileDate) {
+                    Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                } else {
+                    Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING, LinkOption.NOFOLLOW_LINKS);
+                }
+                return null;
+            }
+
+            @Override
+            Void postVisitDirectory(Path dir, List<Path> entries, List<Void> results) throws IOException {
+                if (preserveFileDate) {
+                    // once the entries are copied, which changes the date of the directory
+                    Files.setLastModifiedTime(target.resolve(source.relativize(dir)),
+                            Files.getLastModifiedTime(dir));
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Deletes a directory recursively.
+     *
+     * @param directory  directory to delete, must not be {@code null}
+     * @throws IllegalArgumentException if the directory does not exist or is not a directory
+     * @throws IOException in case deletion is unsuccessful
+     * @see FileUtils#deleteDirectory(File)
+     */
+    public void deleteDirectory(File directory) throws IOException {
+        delete(directory, true);
+    }
+
+    /**
+     * Cleans a directory without deleting it.
+     *
+     * @param directory  directory to clean, must not be {@code null}
+     * @throws IllegalArgumentException if the directory does not exist or is not a directory
+     * @throws IOException in case cleaning is unsuccessful
+     * @see FileUtils#cleanDirectory(File)
+     */
+    public void cleanDirectory(File directory) throws IOException {
+        delete(directory, false);
+    }
+
+    /**
+     * Computes a checksum of a directory tree from the CRC32 checksums of its
+     * files, their names and the names of the directories, so that two trees
+     * with the same content have the same checksum. Files are checksummed in
+     * parallel, large files by tasks of their own.
+     *
+     * @param directory  the directory to checksum, must not be {@code null}
+     * @return the checksum of the tree
+     * @throws IllegalArgumentException if the directory does not exist or is not a directory
+     * @throws IOException if an IO error occurs reading the tree
+     * @see FileUtils#checksumCRC32(File)
+     */
+    public long checksumCRC32(File directory) throws IOException {
+        return walk(directory, new Operation<Long>(true) {
+            @Override
+            Long visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isSymbolicLink()) {
+                    return 0L;
+                }
+                CRC32 crc = new CRC32();
+                BufferPool bufferPool = BufferPool.getDefault();
+                byte[] buffer = bufferPool.acquire(BUFFER_SIZE);
+                InputStream in = Files.newInputStream(file);
+                try {
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        crc.update(buffer, 0, n);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(in);
+                    bufferPool.release(buffer);
+                }
+                return crc.getValue();
+            }
+
+            @Override
+            Long postVisitDirectory(Path dir, List<Path> entries, List<Long> results) {
+                CRC32 crc = new CRC32();
+                for (int i = 0; i < entries.size(); i++) {
+                    crc.update(entries.get(i).getFileName().toString().getBytes(UTF8));
+                    long value = results.get(i);
+                    for (int shift = 56; shift >= 0; shift -= 8) {
+                        crc.update((int) (value >>> shift));
+                    }
+                }
+                return crc.getValue();
+            }
+        });
+    }
+
+    /**
+     * Shuts the pool of the walker down.
+     */
+    public void close() {
+        pool.shutdown();
+    }
+
+    //-----------------------------------------------------------------------
+    private void delete(final File directory, final boolean deleteRoot) throws IOException {
+        final Path root = directory.toPath();
+        walk(directory, new Operation<Void>(false) {
+            @Override
+            Void visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return null;
+            }
+
+            @Override
+            Void postVisitDirectory(Path dir, List<Path> entries, List<Void> results) throws IOException {
+                if (deleteRoot || !dir.equals(root)) {
+                    Files.delete(dir);
+                }
+                return null;
+            }
+        });
+    }
+
+    private <R> R walk(File directory, Operation<R> operation) throws IOException {
+        if (!directory.exists()) {
+            throw new IllegalArgumentException(directory + " does not exist");
+        }
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException(directory + " is not a directory");
+        }
+        try {
+            return pool.invoke(new DirectoryTask<R>(directory.toPath(), operation));
+        } catch (RuntimeException e) {
+            // the task may be rethrown as a copy, with the original as its cause
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof WalkException) {
+                    throw (IOException) cause.getCause();
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * What to do with each entry of the tree.
+     */
+    private abstract static class Operation<R> {
+
+        /** Whether the entries of a directory must be visited in name order. */
+        final boolean sorted;
+
+        Operation(boolean sorted) {
+            this.sorted = sorted;
+        }
+
+        void preVisitDirectory(Path dir) throws IOException {
+        }
+
+        abstract R visitFile(Path file, BasicFileAttributes attrs) throws IOException;
+
+        /*
+         * Gives the result of a directory from those of its entries.
+         */
+        abstract R postVisitDirectory(Path dir, List<Path> entries, List<R> results) throws IOException;
+    }
+
+    /**
+     * Lists a directory, walking its subdirectories and large files in
+     * forked tasks and its other files on its own thread.
+     */
+    private static class DirectoryTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = -3719468402816591267L;
+
+        private final Path dir;
+        private final Operation<R> operation;
+
+        DirectoryTask(Path dir, Operation<R> operation) {
+            this.dir = dir;
+            this.operation = operation;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected R compute() {
+            try {
+                operation.preVisitDirectory(dir);
+                List<Path> entries = new ArrayList<Path>();
+                DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+                try {
+                    for (Path entry : stream) {
+                        entries.add(entry);
+                    }
+                } finally {
+                    stream.close();
+                }
+                if (operation.sorted) {
+                    Collections.sort(entries, BY_NAME);
+                }
+                List<Object> pending = new ArrayList<Object>(entries.size());
+                for (Path entry : entries) {
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        pending.add(new DirectoryTask<R>(entry, operation).fork());
+                    } else if (attrs.size() >= FORK_FILE_SIZE) {
+                        pending.add(new FileTask<R>(entry, attrs, operation).fork());
+                    } else {
+                        pending.add(new Result<R>(operation.visitFile(entry, attrs)));
+                    }
+                }
+                List<R> results = new ArrayList<R>(pending.size());
+                for (Object task : pending) {
+                    results.add(task instanceof Result ? ((Result<R>) task).value : ((ForkJoinTask<R>) task).join());
+                }
+                return operation.postVisitDirectory(dir, entries, results);
+            } catch (IOException e) {
+                throw new WalkException(e);
+            }
+        }
+    }
+
+    private static class FileTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 5018251270425125830L;
+
+        private final Path file;
+        private final BasicFileAttributes attrs;
+        private final Operation<R> operation;
+
+        FileTask(Path file, BasicFileAttributes attrs, Operation<R> operation) {
+            this.file = file;
+            this.attrs = attrs;
+            this.operation = operation;
+        }
+
+        @Override
+        protected R compute() {
+            try {
+                return operation.visitFile(file, attrs);
+            } catch (IOException e) {
+                throw new WalkException(e);
+            }
+        }
+    }
+
+    /**
+     * The result of an entry visited without forking.
+     */
+    private static class Result<R> {
+
+        final R value;
+
+        Result(R value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Carries an <code>IOException</code> out of a task.
+     */
+    private static class WalkException extends RuntimeException {
+
+        private static final long serialVersionUID = 2294712512086313047L;
+
+        WalkException(IOException cause) {
+            super(cause);
+        }
+    }
+
+}
@@ -0,0 +1,537 @@
+package org.jan.common.utils.io;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of IO buffers, so that copying, compressing and reading do not
+ * allocate a new buffer for every call.
+ * <p>
+ * Buffers come in size classes, powers of two from {@link #MIN_SIZE} to
+ * {@link #MAX_SIZE}; a request is served with a buffer of the smallest class
+ * that holds it, so a buffer may be larger than asked for. Larger requests
+ * are allocated and dropped on release without being pooled. Heap buffers
+ * are <code>byte[]</code>, or <code>ByteBuffer</code>s wrapping them, and
+ * direct buffers are pooled apart.
+ * <p>
+ * Each thread keeps a few heap buffers of the smaller classes for itself,
+ * taken without contention: two of each class up to 64KB, about 256KB per
+ * thread at most, held as long as the thread lives. Direct buffers, allocated
+ * outside the heap, and the other heap buffers are shared by all threads in a
+ * pool bounded per class. A buffer must be released once, by any thread, and not used
+ * afterwards:
+ * <pre>
+ * byte[] buffer = BufferPool.getDefault().acquire(4096);
+ * try {
+ *     /// use buffer
+ * } finally {
+ *     BufferPool.getDefault().release(buffer);
+ * }
+ * </pre>
+ * <p>
+ * With the system property <code>org.jan.common.utils.io.BufferPool.debug</code>
+ * set to <code>true</code> the default pool records where each buffer was
+ * acquired, and reports to <code>System.err</code> the buffers garbage collected
+ * without being released, and the buffers released twice.
+ *
+ * @since 1.0
+ */
+public class BufferPool {
+
+    /**
+     * The smallest size class, 512 bytes.
+     */
+    public static final int MIN_SIZE = 1 << 9;
+
+    /**
+     * The largest size class, 1MB.
+     */
+    public static final int MAX_SIZE = 1 << 20;
+
+    /**
+     * The system property enabling the leak detection of the default pool.
+     */
+    public static final String DEBUG_PROPERTY = BufferPool.class.getName() + ".debug";
+
+    private static final int MIN_SHIFT = 9;
+    private static final int CLASS_COUNT = 20 - MIN_SHIFT + 1;
+
+    /**
+     * Heap buffers up to this size are cached per thread.
+     */
+    private static final int THREAD_CACHE_MAX_SIZE = 1 << 16;
+    private static final int THREAD_CACHE_DEPTH = 2;
+
+    /**
+     * The bytes the shared pool keeps at most per size class and kind.
+     */
+    private static final int DEFAULT_CLASS_CAPACITY = 1 << 22;
+
+    private static final BufferPool DEFAULT = new BufferPool(DEFAULT_CLASS_CAPACITY,
+            Boolean.getBoolean(DEBUG_PROPERTY));
+
+    private final SizeClass[] heapClasses = new SizeClass[CLASS_COUNT];
+    private final SizeClass[] directClasses = new SizeClass[CLASS_COUNT];
+    private final ThreadLocal<ThreadCache> threadCaches = new ThreadLocal<ThreadCache>() {
+        @Override
+        protected ThreadCache initialValue() {
+            return new ThreadCache();
+        }
+    };
+    private final LeakDetector leakDetector;
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong threadCacheHits = new AtomicLong();
+    private final AtomicLong sharedHits = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong unpooled = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    /**
+     * Creates a pool.
+     *
+     * @param classCapacity  the bytes kept at most by the shared pool for each
+     *  size class, of heap and of direct buffers
+     * @param debug  whether to detect the buffers not released
+     */
+    public BufferPool(int classCapacity, boolean debug) {
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            int size = MIN_SIZE << i;
+            int capacity = Math.max(1, classCapacity / size);
+            heapClasses[i] = new SizeClass(capacity);
+            directClasses[i] = new SizeClass(capacity);
+        }
+        this.leakDetector = debug ? new LeakDetector() : null;
+    }
+
+    /**
+     * @return the pool shared by the utilities of this library
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Acquires a heap buffer of at least the specified size.
+     *
+     * @param size  the minimum size of the buffer
+     * @return a buffer, its content undefined
+     */
+    public byte[] acquire(int size) {
+        acquired.incrementAndGet();
+        int index = sizeClass(size);
+        byte[] buffer = index < 0 ? null : (byte[]) take(heapClasses, index, false);
+        if (buffer == null) {
+            buffer = new byte[index < 0 ? size : MIN_SIZE << index];
+            allocated(buffer.length);
+        }
+        track(buffer);
+        return buffer;
+    }
+
+    /**
+     * Acquires a <code>ByteBuffer</code> of at least the specified capacity,
+     * cleared, its limit set to its capacity.
+     *
+     * @param size  the minimum capacity of the buffer
+     * @param direct  whether to acquire a direct buffer rather than one backed by an array
+     * @return a buffer
+     */
+    public ByteBuffer acquireBuffer(int size, boolean direct) {
+        if (!direct) {
+            return ByteBuffer.wrap(acquire(size));
+        }
+        acquired.incrementAndGet();
+        int index = sizeClass(size);
+        ByteBuffer buffer = index < 0 ? null : (ByteBuffer) take(directClasses, index, true);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(index < 0 ? size : MIN_SIZE << index);
+            allocated(buffer.capacity());
+        } else {
+            buffer.clear();
+        }
+        track(buffer);
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer acquired from this pool. A {@code null} buffer is ignored.
+     *
+     * @param buffer  the buffer, not to be used afterwards
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null || !untrack(buffer)) {
+            return;
+        }
+        give(heapClasses, buffer, buffer.length, false);
+    }
+
+    /**
+     * Gives back a buffer acquired from this pool. A {@code null} buffer is ignored.
+     *
+     * @param buffer  the buffer, not to be used afterwards, nor its views
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (!buffer.isDirect()) {
+            if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.capacity() == buffer.array().length) {
+                release(buffer.array());
+            }
+            return;
+        }
+        if (untrack(buffer)) {
+            give(directClasses, buffer, buffer.capacity(), true);
+        }
+    }
+
+    /**
+     * @return a snapshot of the usage of the pool
+     */
+    public Metrics getMetrics() {
+        long pooledBytes = 0;
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            pooledBytes += (long) (heapClasses[i].count.get() + directClasses[i].count.get()) * (MIN_SIZE << i);
+        }
+        return new Metrics(acquired.get(), released.get(), threadCacheHits.get(), sharedHits.get(),
+                allocations.get(), allocatedBytes.get(), unpooled.get(), discarded.get(), pooledBytes,
+                leakDetector == null ? 0 : leakDetector.leaks.get());
+    }
+
+    //-----------------------------------------------------------------------
+    /*
+     * Returns the index of the size class for a size, -1 for sizes not pooled.
+     */
+    private static int sizeClass(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative buffer size: " + size);
+        }
+        if (size > MAX_SIZE) {
+            return -1;
+        }
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private Object take(SizeClass[] classes, int index, boolean direct) {
+        if (!direct && (MIN_SIZE << index) <= THREAD_CACHE_MAX_SIZE) {
+            Object buffer = threadCaches.get().poll(index);
+            if (buffer != null) {
+                threadCacheHits.incrementAndGet();
+                return buffer;
+            }
+        }
+        Object buffer = classes[index].poll();
+        if (buffer != null) {
+            sharedHits.incrementAndGet();
+        }
+        return buffer;
+    }
+
+    private void give(SizeClass[] classes, Object buffer, int size, boolean direct) {
+        released.incrementAndGet();
+        int index = sizeClass(size);
+        if (index < 0 || (MIN_SIZE << index) != size) {
+            unpooled.incrementAndGet();
+            return;
+        }
+        if (!direct && size <= THREAD_CACHE_MAX_SIZE && threadCaches.get().offer(index, buffer)) {
+            return;
+        }
+        if (!classes[index].offer(buffer)) {
+            discarded.incrementAndGet();
+        }
+    }
+
+    private void allocated(int size) {
+        allocations.incrementAndGet();
+        allocatedBytes.addAndGet(size);
+    }
+
+    private void track(Object buffer) {
+        if (leakDetector != null) {
+            leakDetector.track(buffer);
+        }
+    }
+
+    private boolean untrack(Object buffer) {
+        return leakDetector == null || leakDetector.untrack(buffer);
+    }
+
+    /**
+     * The shared buffers of one size class, bounded in number.
+     */
+    private static class SizeClass {
+
+        private final ConcurrentLinkedQueue<Object> buffers = new ConcurrentLinkedQueue<Object>();
+        private final AtomicInteger count = new AtomicInteger();
+        private final int capacity;
+
+        SizeClass(int capacity) {
+            this.capacity = capacity;
+        }
+
+        Object poll() {
+            Object buffer = buffers.poll();
+            if (buffer != null) {
+                count.decrementAndGet();
+            }
+            return buffer;
+        }
+
+        boolean offer(Object buffer) {
+            if (count.incrementAndGet() > capacity) {
+                count.decrementAndGet();
+                return false;
+            }
+            buffers.offer(buffer);
+            return true;
+        }
+    }
+
+    /**
+     * The heap buffers of the small size classes kept by one thread. Direct
+     * buffers are not cached per thread, so that the threads of a large pool do
+     * not pin memory outside the heap.
+     */
+    private static class ThreadCache {
+
+        private static final int CACHED_CLASSES = 16 - MIN_SHIFT + 1;
+
+        private final Object[][] heap = new Object[CACHED_CLASSES][THREAD_CACHE_DEPTH];
+
+        Object poll(int index) {
+            Object[] stack = heap[index];
+            for (int i = stack.length - 1; i >= 0; i--) {
+                Object buffer = stack[i];
+                if (buffer != null) {
+                    stack[i] = null;
+                    return buffer;
+                }
+            }
+            return null;
+        }
+
+        boolean offer(int index, Object buffer) {
+            Object[] stack = heap[index];
+            for (int i = 0; i < stack.length; i++) {
+                if (stack[i] == null) {
+                    stack[i] = buffer;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Tracks the acquired buffers with weak references, to report those
+     * collected before being released.
+     */
+    private static class LeakDetector {
+
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+        /** The references by identity hash code of the buffer, chained on collision. */
+        private final Map<Integer, Tracked> tracked = new HashMap<Integer, Tracked>();
+        private final AtomicLong leaks = new AtomicLong();
+
+        void track(Object buffer) {
+            expunge();
+            Integer key = Integer.valueOf(System.identityHashCode(buffer));
+            Tracked reference = new Tracked(buffer, key, queue);
+            synchronized (tracked) {
+                reference.next = tracked.put(key, reference);
+            }
+        }
+
+        boolean untrack(Object buffer) {
+            Integer key = Integer.valueOf(System.identityHashCode(buffer));
+            synchronized (tracked) {
+                if (remove(key, buffer, null)) {
+                    return true;
+                }
+            }
+            new IllegalStateException("Buffer released twice or not acquired from the pool: "
+                    + buffer.getClass().getSimpleName()).printStackTrace();
+            return false;
+        }
+
+        /*
+         * Removes the reference to a buffer, or the given reference when one is.
+         */
+        private boolean remove(Integer key, Object buffer, Tracked target) {
+            Tracked previous = null;
+            for (Tracked reference = tracked.get(key); reference != null; reference = reference.next) {
+                if (target != null ? reference == target : reference.get() == buffer) {
+                    if (previous != null) {
+                        previous.next = reference.next;
+                    } else if (reference.next != null) {
+                        tracked.put(key, reference.next);
+                    } else {
+                        tracked.remove(key);
+                    }
+                    return true;
+                }
+                previous = reference;
+            }
+            return false;
+        }
+
+        private void expunge() {
+            Tracked reference;
+            while ((reference = (Tracked) queue.poll()) != null) {
+                boolean leaked;
+                synchronized (tracked) {
+                    leaked = remove(reference.key, null, reference);
+                }
+                if (leaked) {
+                    leaks.incrementAndGet();
+                    System.err.println("LEAK: a pooled buffer was garbage collected without being released");
+                    reference.acquiredAt.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static class Tracked extends WeakReference<Object> {
+
+        private final Integer key;
+        private final Throwable acquiredAt = new Throwable("Acquired at");
+        private Tracked next;
+
+        Tracked(Object buffer, Integer key, ReferenceQueue<Object> queue) {
+            super(buffer, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * A snapshot of the usage of a pool.
+     */
+    public static class Metrics {
+
+        private final long acquired;
+        private final long released;
+        private final long threadCacheHits;
+        private final long sharedHits;
+        private final long allocations;
+        private final long allocatedBytes;
+        private final long unpooled;
+        private final long discarded;
+        private final long pooledBytes;
+        private final long leaks;
+
+        Metrics(long acquired, long released, long threadCacheHits, long sharedHits, long allocations,
+                long allocatedBytes, long unpooled, long discarded, long pooledBytes, long leaks) {
+            this.acquired = acquired;
+            this.released = released;
+            this.threadCacheHits = threadCacheHits;
+            this.sharedHits = sharedHits;
+            this.allocations = allocations;
+            this.allocatedBytes = allocatedBytes;
+            this.unpooled = unpooled;
+            this.discarded = discarded;
+            this.pooledBytes = pooledBytes;
+            this.leaks = leaks;
+        }
+
+        /**
+         * @return the pooled buffers acquired, including those newly allocated
+         */
+        public long getAcquired() {
+            return acquired;
+        }
+
+        /**
+         * @return the buffers released
+         */
+        public long getReleased() {
+            return released;
+        }
+
+        /**
+         * @return the buffers acquired from the cache of the calling thread
+         */
+        public long getThreadCacheHits() {
+            return threadCacheHits;
+        }
+
+        /**
+         * @return the buffers acquired from the shared pool
+         */
+        public long getSharedHits() {
+            return sharedHits;
+        }
+
+        /**
+         * @return the buffers allocated because none was pooled
+         */
+        public long getAllocations() {
+            return allocations;
+        }
+
+        /**
+         * @return the bytes of the buffers allocated
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return the buffers released without being pooled, being over {@link BufferPool#MAX_SIZE}
+         */
+        public long getUnpooled() {
+            return unpooled;
+        }
+
+        /**
+         * @return the buffers released while the pool of their class was full
+         */
+        public long getDiscarded() {
+            return discarded;
+        }
+
+        /**
+         * @return the bytes of the buffers in the shared pool
+         */
+        public long getPooledBytes() {
+            return pooledBytes;
+        }
+
+        /**
+         * @return the buffers found collected without being released, in debug mode
+         */
+        public long getLeaks() {
+            return leaks;
+        }
+
+        /**
+         * @return the part of the acquisitions served from the pool
+         */
+        public double getHitRatio() {
+            return acquired == 0 ? 0 : (double) (threadCacheHits + sharedHits) / acquired;
+        }
+
+        @Override
+        public String toString() {
+            return "BufferPool[acquired=" + acquired + ", released=" + released
+                    + ", threadCacheHits=" + threadCacheHits + ", sharedHits=" + sharedHits
+                    + ", allocations=" + allocations + ", allocatedBytes=" + allocatedBytes
+                    + ", unpooled=" + unpooled + ", discarded=" + discarded
+                    + ", pooledBytes=" + pooledBytes + ", leaks=" + leaks + "]";
+        }
+    }
+
+}
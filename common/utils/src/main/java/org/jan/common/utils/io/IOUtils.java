@@ -7,6 +7,8 @@ import java.io.CharArrayWriter;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -24,7 +26,12 @@ import java.net.Socket;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
@@ -113,6 +120,18 @@ public class IOUtils {
      */
     private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
 
+    /**
+     * The size of the direct buffer used by channel copies that cannot be
+     * handed to {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+     */
+    private static final int CHANNEL_BUFFER_SIZE = 1024 * 64;
+
+    /**
+     * The most bytes one transfer call is asked for, some platforms failing
+     * on larger counts.
+     */
+    private static final long MAX_TRANSFER_SIZE = 1024 * 1024 * 8;
+
     /**
      * The default buffer size to use for the skip() methods.
      */
@@ -987,6 +1006,71 @@ public class IOUtils {
         return list;
     }
 
+    // lineIterator
+    //-----------------------------------------------------------------------
+    /**
+     * Return an Iterator for the lines in a <code>Reader</code>.
+     * <p>
+     * Unlike {@link #readLines(Reader)} the lines are read as the iterator
+     * is advanced, so an input of any size is read in constant memory.
+     * The iterator should be closed, which closes the reader:
+     * <pre>
+     * LineIterator it = IOUtils.lineIterator(reader);
+     * try {
+     *     while (it.hasNext()) {
+     *         String line = it.nextLine();
+     *         /// do something with line
+     *     }
+     * } finally {
+     *     LineIterator.closeQuietly(it);
+     * }
+     * </pre>
+     *
+     * @param reader  the <code>Reader</code> to read from, not null
+     * @return an Iterator of the lines in the reader, never null
+     * @throws IllegalArgumentException if the reader is null
+     * @since 1.0
+     */
+    public static LineIterator lineIterator(Reader reader) {
+        return new LineIterator(reader);
+    }
+
+    /**
+     * Return an Iterator for the lines in an <code>InputStream</code>, using
+     * the character encoding specified (or default encoding if null).
+     * <p>
+     * The bytes are decoded by a <code>CharsetDecoder</code> into a reused
+     * buffer, without an intermediate <code>Reader</code>. The iterator should
+     * be closed, which closes the stream.
+     *
+     * @param input  the <code>InputStream</code> to read from, not null
+     * @param encoding  the encoding to use, null means platform default
+     * @return an Iterator of the lines in the stream, never null
+     * @throws IllegalArgumentException if the input is null
+     * @since 1.0
+     */
+    public static LineIterator lineIterator(InputStream input, Charset encoding) {
+        if (input == null) {
+            throw new IllegalArgumentException("InputStream must not be null");
+        }
+        return new LineIterator(input, CharsetUtils.toCharset(encoding));
+    }
+
+    /**
+     * Return an Iterator for the lines in an <code>InputStream</code>, using
+     * the character encoding specified (or default encoding if null).
+     *
+     * @param input  the <code>InputStream</code> to read from, not null
+     * @param encoding  the encoding to use, null means platform default
+     * @return an Iterator of the lines in the stream, never null
+     * @throws IllegalArgumentException if the input is null
+     * @throws UnsupportedCharsetException if the encoding is not supported
+     * @since 1.0
+     */
+    public static LineIterator lineIterator(InputStream input, String encoding) {
+        return lineIterator(input, CharsetUtils.toCharset(encoding));
+    }
+
     //-----------------------------------------------------------------------
     /**
      * Convert the specified CharSequence to an input stream, encoded as bytes
@@ -1547,7 +1631,25 @@ public class IOUtils {
      */
     public static long copyLarge(InputStream input, OutputStream output)
             throws IOException {
-        return copyLarge(input, output, new byte[DEFAULT_BUFFER_SIZE]);
+        if (input.getClass() == FileInputStream.class) {
+            FileChannel channel = ((FileInputStream) input).getChannel();
+            if (isSeekable(channel)) {
+                return copyLarge(channel, output);
+            }
+        }
+        if (output.getClass() == FileOutputStream.class) {
+            FileChannel channel = ((FileOutputStream) output).getChannel();
+            if (isSeekable(channel)) {
+                return copyLarge(Channels.newChannel(input), channel);
+            }
+        }
+        BufferPool pool = BufferPool.getDefault();
+        byte[] buffer = pool.acquire(DEFAULT_BUFFER_SIZE);
+        try {
+            return copyLarge(input, output, buffer);
+        } finally {
+            pool.release(buffer);
+        }
     }
 
     /**
@@ -1577,6 +1679,100 @@ public class IOUtils {
         return count;
     }
 
+    /**
+     * Copy all bytes from a <code>ReadableByteChannel</code> to a
+     * <code>WritableByteChannel</code>, from the current position of the
+     * input to its end. Both channels must be in blocking mode.
+     * <p>
+     * When either side is a <code>FileChannel</code> the copy is made with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} or
+     * {@link FileChannel#transferFrom(ReadableByteChannel, long, long)}, which
+     * the operating system can perform without copying the data through the
+     * JVM (<code>sendfile</code> to a socket, for example); the positions of
+     * the file channels are advanced by the bytes copied. Otherwise, and for
+     * the file channels of pipes and terminals, which cannot seek, a direct
+     * buffer from the {@link BufferPool} is used.
+     *
+     * @param input  the <code>ReadableByteChannel</code> to read from
+     * @param output  the <code>WritableByteChannel</code> to write to
+     * @return the number of bytes copied
+     * @throws NullPointerException if the input or output is null
+     * @throws IOException if an I/O error occurs
+     * @since 1.0
+     */
+    public static long copyLarge(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+        long count = 0;
+        if (input instanceof FileChannel && isSeekable((FileChannel) input)) {
+            FileChannel in = (FileChannel) input;
+            long position = in.position();
+            long size = in.size();
+            while (position + count < size) {
+                long n = in.transferTo(position + count, Math.min(size - position - count, MAX_TRANSFER_SIZE), output);
+                if (n <= 0) {
+                    break; // truncated while copying
+                }
+                count += n;
+            }
+            in.position(position + count);
+            // what the size did not tell: files that grew, pipes and /proc entries
+        } else if (output instanceof FileChannel && isSeekable((FileChannel) output)
+                && !(input instanceof FileChannel)) {
+            // transferFrom seeks the file channels it reads, those left are pipes
+            FileChannel out = (FileChannel) output;
+            long position = out.position();
+            long n;
+            // returns 0 once a blocking input is exhausted
+            while ((n = out.transferFrom(input, position + count, MAX_TRANSFER_SIZE)) > 0) {
+                count += n;
+            }
+            out.position(position + count);
+            return count;
+        }
+        BufferPool pool = BufferPool.getDefault();
+        ByteBuffer buffer = pool.acquireBuffer(CHANNEL_BUFFER_SIZE, true);
+        try {
+            while (EOF != input.read(buffer)) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    count += output.write(buffer);
+                }
+                buffer.clear();
+            }
+            return count;
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /*
+     * Whether a file channel has a position, those of pipes and terminals failing with "Illegal seek".
+     */
+    private static boolean isSeekable(FileChannel channel) {
+        try {
+            channel.position();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copy all bytes from a <code>FileChannel</code>, from its current position,
+     * to an <code>OutputStream</code>.
+     *
+     * @param input  the <code>FileChannel</code> to read from
+     * @param output  the <code>OutputStream</code> to write to
+     * @return the number of bytes copied
+     * @throws NullPointerException if the input or output is null
+     * @throws IOException if an I/O error occurs
+     * @see #copyLarge(ReadableByteChannel, WritableByteChannel)
+     * @since 1.0
+     */
+    public static long copyLarge(FileChannel input, OutputStream output) throws IOException {
+        return copyLarge(input, output.getClass() == FileOutputStream.class
+                ? ((FileOutputStream) output).getChannel() : Channels.newChannel(output));
+    }
+
     /**
      * Copy some or all bytes from a large (over 2GB) <code>InputStream</code> to an
      * <code>OutputStream</code>, optionally skipping input bytes.
@@ -1598,7 +1794,13 @@ public class IOUtils {
      */
     public static long copyLarge(InputStream input, OutputStream output, long inputOffset, long length)
             throws IOException {
-        return copyLarge(input, output, inputOffset, length, new byte[DEFAULT_BUFFER_SIZE]);
+        BufferPool pool = BufferPool.getDefault();
+        byte[] buffer = pool.acquire(DEFAULT_BUFFER_SIZE);
+        try {
+            return copyLarge(input, output, inputOffset, length, buffer);
+        } finally {
+            pool.release(buffer);
+        }
     }
 
     /**
@@ -0,0 +1,283 @@
+package org.jan.common.utils.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over the lines of a <code>Reader</code>, <code>InputStream</code>
+ * or <code>ReadableByteChannel</code>, read as they are asked for.
+ * <p>
+ * Lines end with <code>\n</code>, <code>\r\n</code> or <code>\r</code>, as with
+ * <code>BufferedReader</code>. Bytes are decoded by a <code>CharsetDecoder</code>,
+ * malformed input being replaced, into a char buffer reused for the whole input;
+ * apart from the returned strings the iterator only allocates when a line is
+ * longer than its buffer. The byte buffer comes from the {@link BufferPool}
+ * and goes back to it on {@link #close()}.
+ * <p>
+ * The iterator should be closed to release the underlying input, which is
+ * closed with it.
+ * <pre>
+ * LineIterator it = FileUtils.lineIterator(file, "UTF-8");
+ * try {
+ *     while (it.hasNext()) {
+ *         String line = it.nextLine();
+ *         /// do something with line
+ *     }
+ * } finally {
+ *     LineIterator.closeQuietly(it);
+ * }
+ * </pre>
+ *
+ * @since 1.0
+ */
+public class LineIterator implements Iterator<String>, Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1024 * 8;
+
+    private final Reader reader;
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final StringBuilder line = new StringBuilder();
+    private boolean endOfInput;
+    private boolean flushed;
+    private boolean skipLF;
+    private String cachedLine;
+    private boolean finished;
+
+    /**
+     * Iterates over the lines of a <code>Reader</code>.
+     *
+     * @param reader  the <code>Reader</code> to read from, not null
+     */
+    public LineIterator(Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader must not be null");
+        }
+        this.reader = reader;
+        this.channel = null;
+        this.decoder = null;
+        this.bytes = null;
+        this.chars = CharBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        this.chars.flip();
+    }
+
+    /**
+     * Iterates over the lines of an <code>InputStream</code>.
+     *
+     * @param input  the <code>InputStream</code> to read from, not null
+     * @param encoding  the encoding to use, null means platform default
+     */
+    public LineIterator(InputStream input, Charset encoding) {
+        this(Channels.newChannel(input), encoding);
+    }
+
+    /**
+     * Iterates over the lines of a <code>ReadableByteChannel</code>.
+     *
+     * @param channel  the blocking channel to read from, not null
+     * @param encoding  the encoding to use, null means platform default
+     */
+    public LineIterator(ReadableByteChannel channel, Charset encoding) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel must not be null");
+        }
+        this.reader = null;
+        this.channel = channel;
+        this.decoder = (encoding == null ? Charset.defaultCharset() : encoding).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = BufferPool.getDefault().acquireBuffer(DEFAULT_BUFFER_SIZE, false);
+        this.bytes.flip();
+        this.chars = CharBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        this.chars.flip();
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Indicates whether there is at least one more line to read.
+     * <p>
+     * If there is an <code>IOException</code> then {@link #close()} will
+     * be called on this instance. The input is left open at its end.
+     *
+     * @return {@code true} if the input has more lines
+     * @throws IllegalStateException if an IO exception occurs
+     */
+    public boolean hasNext() {
+        if (cachedLine != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            cachedLine = readLine();
+            if (cachedLine == null) {
+                finished = true;
+                return false;
+            }
+            return true;
+        } catch (IOException ioe) {
+            closeQuietly(this);
+            throw new IllegalStateException(ioe);
+        }
+    }
+
+    /**
+     * Returns the next line in the wrapped input.
+     *
+     * @return the next line from the input
+     * @throws NoSuchElementException if there is no line to return
+     */
+    public String next() {
+        return nextLine();
+    }
+
+    /**
+     * Returns the next line in the wrapped input.
+     *
+     * @return the next line from the input
+     * @throws NoSuchElementException if there is no line to return
+     */
+    public String nextLine() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more lines");
+        }
+        String currentLine = cachedLine;
+        cachedLine = null;
+        return currentLine;
+    }
+
+    /**
+     * Closes the underlying input and stops the iteration.
+     *
+     * @throws IOException if closing the input fails
+     */
+    public void close() throws IOException {
+        finished = true;
+        cachedLine = null;
+        if (reader != null) {
+            reader.close();
+        } else {
+            if (bytes != null) {
+                BufferPool.getDefault().release(bytes);
+                bytes = null;
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Unsupported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("Remove unsupported on LineIterator");
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * Closes the iterator, handling null and ignoring exceptions.
+     *
+     * @param iterator  the iterator to close
+     */
+    public static void closeQuietly(LineIterator iterator) {
+        if (iterator != null) {
+            try {
+                iterator.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    private String readLine() throws IOException {
+        line.setLength(0);
+        boolean any = false;
+        while (true) {
+            if (!chars.hasRemaining()) {
+                if (!fill()) {
+                    return any ? line.toString() : null;
+                }
+                continue;
+            }
+            if (skipLF) {
+                skipLF = false;
+                if (chars.get(chars.position()) == '\n') {
+                    chars.position(chars.position() + 1);
+                    continue;
+                }
+            }
+            int start = chars.position();
+            int limit = chars.limit();
+            int end = start;
+            char c = 0;
+            while (end < limit && (c = chars.get(end)) != '\n' && c != '\r') {
+                end++;
+            }
+            if (end == limit) {
+                // the line goes on in the next buffer
+                line.append(chars.array(), chars.arrayOffset() + start, end - start);
+                chars.position(end);
+                any = true;
+                continue;
+            }
+            chars.position(end + 1);
+            skipLF = c == '\r';
+            if (!any) {
+                return new String(chars.array(), chars.arrayOffset() + start, end - start);
+            }
+            line.append(chars.array(), chars.arrayOffset() + start, end - start);
+            return line.toString();
+        }
+    }
+
+    /*
+     * Refills the char buffer, returns false at the end of the input.
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+        try {
+            if (reader != null) {
+                int n;
+                while ((n = reader.read(chars)) == 0) {
+                    // a reader may return 0 for a buffer it did not fill, read again
+                }
+                return n > 0;
+            }
+            if (flushed) {
+                return false;
+            }
+            while (true) {
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                if (endOfInput && result.isUnderflow()) {
+                    flushed = decoder.flush(chars).isUnderflow();
+                }
+                if (chars.position() > 0 || flushed) {
+                    return chars.position() > 0;
+                }
+                bytes.compact();
+                endOfInput = channel.read(bytes) == -1;
+                bytes.flip();
+            }
+        } finally {
+            chars.flip();
+        }
+    }
+
+}
@@ -5,6 +5,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -20,6 +22,10 @@ import org.xml.sax.helpers.XMLReaderFactory;
 
 /**
  * utilities for parsing XML by jdom.
+ * <p>
+ * A {@link JAXBContext} is expensive to build and thread-safe, so one is created per
+ * class and reused; unmarshallers, marshallers and XML filters are not thread-safe
+ * and are created for each call.
  *
  * @author Jan.Wang
  * @since 1.0
@@ -28,7 +34,24 @@ public class JAXBXmlUtils {
 
     private static final String ENCODING_TYPE = "UTF-8";
 
-    private static final NoNamespaceFilter noNamespaceFilter = new NoNamespaceFilter();
+    private static final ConcurrentMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+
+    /**
+     * Returns the cached JAXB context of the specified class, creating it on first use.
+     * @param clazz
+     * @return
+     * @throws JAXBException
+     */
+    public static JAXBContext getContext(Class<?> clazz) throws JAXBException {
+        JAXBContext context = contexts.get(clazz);
+        if (null == context) {
+            context = JAXBContext.newInstance(clazz);
+            JAXBContext existing = contexts.putIfAbsent(clazz, context);
+            if (null != existing)
+                context = existing;
+        }
+        return context;
+    }
 
     /**
      * This method unmarshalls the content in the given xml string into an object of the specified class.
@@ -59,8 +82,9 @@ public class JAXBXmlUtils {
      */
     public static <T> T xmlToObj(InputStream inputStream, Class<T> clazz) {
         try {
+            NoNamespaceFilter noNamespaceFilter = new NoNamespaceFilter();
             noNamespaceFilter.setParent(XMLReaderFactory.createXMLReader());
-            Unmarshaller unmarshaller = JAXBContext.newInstance(clazz).createUnmarshaller();
+            Unmarshaller unmarshaller = getContext(clazz).createUnmarshaller();
             SAXSource source = new SAXSource(noNamespaceFilter, new InputSource(inputStream));
             return unmarshaller.unmarshal(source, clazz).getValue();
         } catch (JAXBException e) {
@@ -93,7 +117,7 @@ public class JAXBXmlUtils {
      */
     public static <T> void objToXml(T obj, OutputStream outputStream) {
         try {
-            Marshaller marshaller = JAXBContext.newInstance(obj.getClass()).createMarshaller();
+            Marshaller marshaller = getContext(obj.getClass()).createMarshaller();
             marshaller.marshal(obj, outputStream);
         } catch (JAXBException e) {
             e.printStackTrace();
@@ -19,6 +19,7 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.Inflater;
 
+import org.jan.common.utils.io.BufferPool;
 import org.jan.common.utils.io.IOUtils;
 
 /**
@@ -30,6 +31,8 @@ import org.jan.common.utils.io.IOUtils;
  */
 public class ZipUtils {
 
+    private static final int BUFFER_SIZE = 1024 * 4;
+
     /**
      * gzip compression
      * */
@@ -63,11 +66,8 @@ public class ZipUtils {
         try {
             bis = new ByteArrayInputStream(data);
             gzip = new GZIPInputStream(bis);
-            byte[] buf = new byte[1024];
             bos = new ByteArrayOutputStream();
-            int b = -1;
-            while (-1 != (b = gzip.read(buf, 0, buf.length)))
-                bos.write(buf, 0, b);
+            IOUtils.copy(gzip, bos);
             bytes = bos.toByteArray();
             bos.flush();
         } catch (Exception ex) {
@@ -87,13 +87,17 @@ public class ZipUtils {
         compresser.setInput(data);
         compresser.finish();
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        byte[] bytes = new byte[1024];
-        compresser.deflate(bytes);
-        while (!compresser.finished()) {
-            bos.write(bytes, 0, compresser.deflate(bytes));
+        BufferPool pool = BufferPool.getDefault();
+        byte[] buffer = pool.acquire(BUFFER_SIZE);
+        try {
+            while (!compresser.finished()) {
+                bos.write(buffer, 0, compresser.deflate(buffer));
+            }
+        } finally {
+            pool.release(buffer);
+            compresser.end();
         }
-        bytes = bos.toByteArray();
-        return bytes;
+        return bos.toByteArray();
     }
 
     /**
@@ -102,17 +106,23 @@ public class ZipUtils {
     public static byte[] inflate(byte[] data) {
         Inflater decompresser = new Inflater();
         decompresser.setInput(data);
-        byte[] bytes = new byte[1024];
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BufferPool pool = BufferPool.getDefault();
+        byte[] buffer = pool.acquire(BUFFER_SIZE);
         try {
             while (!decompresser.finished()) {
-                bos.write(bytes, 0, decompresser.inflate(bytes));
+                int n = decompresser.inflate(buffer);
+                if (n == 0 && (decompresser.needsInput() || decompresser.needsDictionary())) {
+                    break; // truncated data
+                }
+                bos.write(buffer, 0, n);
             }
         } catch (DataFormatException e) {
             e.printStackTrace();
         } finally {
-            bytes = bos.toByteArray();
+            pool.release(buffer);
+            decompresser.end();
         }
-        return bytes;
+        return bos.toByteArray();
     }
 }